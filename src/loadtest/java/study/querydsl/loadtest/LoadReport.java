@@ -0,0 +1,83 @@
+package study.querydsl.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the measured phase as text: the run's settings, one summary line per template and per endpoint
+ * (throughput, outcomes and p50/p90/p99/p99.9/max in milliseconds), then the full HdrHistogram percentile
+ * distribution of every endpoint, which HdrHistogram's plotter reads as is.
+ */
+final class LoadReport {
+
+    private static final String ROW = "%-22s %9s %8s %8s %8s %8s %9s %9s %9s %9s %9s%n";
+
+    private LoadReport() {
+    }
+
+    static void write(LoadTestOptions options, SearchMix mix, Map<SearchMix.Template, OpenLoopDriver.Results> results)
+        throws IOException {
+        Map<String, OpenLoopDriver.Results> byEndpoint = new LinkedHashMap<>();
+        results.forEach((template, result) -> {
+            OpenLoopDriver.Results endpoint = byEndpoint.computeIfAbsent(template.endpoint, key -> new OpenLoopDriver.Results());
+            endpoint.latencyMicros.add(result.latencyMicros);
+            endpoint.ok.add(result.ok.sum());
+            endpoint.redirected.add(result.redirected.sum());
+            endpoint.failed.add(result.failed.sum());
+            endpoint.dropped.add(result.dropped.sum());
+        });
+
+        Files.createDirectories(options.report.toAbsolutePath().getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(options.report), false, StandardCharsets.UTF_8)) {
+            out.printf("Member search load test, %s%n", OffsetDateTime.now());
+            out.printf("dataset: %d members in %d teams, seed %d%n", options.members, options.teams, options.seed);
+            out.printf(Locale.ROOT, "arrival rate: %.1f/s for %d s after %d s warm-up, at most %d in flight%n",
+                options.rate, options.durationSeconds, options.warmUpSeconds, options.maxInFlight);
+            StringBuilder weights = new StringBuilder();
+            for (SearchMix.Template template : mix.templates()) {
+                weights.append(weights.length() == 0 ? "" : ", ").append(template.name).append('=').append(mix.weight(template));
+            }
+            out.printf("mix: %s%n", weights);
+            if (!options.applicationArgs.isEmpty()) {
+                out.printf("application: %s%n", options.applicationArgs);
+            }
+            out.println("latency is measured from when each request was due, in ms");
+            out.println();
+
+            out.printf(ROW, "", "req/s", "ok", "3xx", "failed", "dropped", "p50", "p90", "p99", "p99.9", "max");
+            results.forEach((template, result) -> row(out, template.name, result, options.durationSeconds));
+            out.println();
+            byEndpoint.forEach((endpoint, result) -> row(out, endpoint, result, options.durationSeconds));
+
+            for (Map.Entry<String, OpenLoopDriver.Results> endpoint : byEndpoint.entrySet()) {
+                out.println();
+                out.printf("%s percentile distribution (ms)%n", endpoint.getKey());
+                endpoint.getValue().latencyMicros.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private static void row(PrintStream out, String name, OpenLoopDriver.Results result, int durationSeconds) {
+        Histogram latency = result.latencyMicros;
+        long completed = result.ok.sum() + result.redirected.sum() + result.failed.sum();
+        out.printf(Locale.ROOT, ROW, name,
+            String.format(Locale.ROOT, "%.1f", (double) completed / durationSeconds),
+            result.ok.sum(), result.redirected.sum(), result.failed.sum(), result.dropped.sum(),
+            millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+            millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+            millis(latency.getMaxValue()));
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.2f", micros / 1000.0);
+    }
+
+}
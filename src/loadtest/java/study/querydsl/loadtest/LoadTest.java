@@ -0,0 +1,62 @@
+package study.querydsl.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.repository.invalidation.InvalidationBatch;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots {@link QuerydslApplication} on a synthetic dataset in its own in-memory database and drives the member
+ * search endpoints with {@link OpenLoopDriver}, then writes a {@link LoadReport}. Started by
+ * {@code ./gradlew loadTest}, options through {@code -Pargs="--rate=500 --duration=120"}:
+ * <ul>
+ *     <li>{@code members}, {@code teams}, {@code seed}: the dataset (100000, 100, 42)</li>
+ *     <li>{@code rate}, {@code warm-up}, {@code duration}: requests per second and seconds (200, 10, 60)</li>
+ *     <li>{@code max-in-flight}: outstanding requests before new ones are dropped (1000)</li>
+ *     <li>{@code mix}: template weights, e.g. {@code v1-username=0,v3-deep-page=20}; see {@link SearchMix}</li>
+ *     <li>{@code report}: the report file ({@code build/loadtest/report.txt})</li>
+ * </ul>
+ * Other options are handed to the application as properties.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        SearchMix mix = new SearchMix(options);
+
+        List<String> applicationArgs = new ArrayList<>();
+        // not the local profile: its sample data would be mixed into the synthetic one
+        applicationArgs.add("--spring.profiles.active=loadtest");
+        applicationArgs.add("--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        applicationArgs.add("--server.port=0");
+        applicationArgs.add("--logging.level.org.hibernate.SQL=info");
+        options.applicationArgs.forEach((name, value) -> applicationArgs.add("--" + name + "=" + value));
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+            .run(applicationArgs.toArray(new String[0]))) {
+            long start = System.nanoTime();
+            SyntheticDataset.load(context.getBean(JdbcTemplate.class), options.members, options.teams, options.seed);
+            // written behind Hibernate's back; caches, the username filter and statistics start over
+            context.getBean(InvalidationPublisher.class).bump(InvalidationBatch.ALL);
+            System.out.printf("Loaded %d members in %d ms%n", options.members, (System.nanoTime() - start) / 1_000_000);
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Map<SearchMix.Template, OpenLoopDriver.Results> results =
+                new OpenLoopDriver("http://localhost:" + port, mix, options).run();
+
+            LoadReport.write(options, mix, results);
+            System.out.printf("Report written to %s%n", options.report.toAbsolutePath());
+        }
+    }
+
+}
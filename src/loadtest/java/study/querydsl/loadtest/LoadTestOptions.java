@@ -0,0 +1,86 @@
+package study.querydsl.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options, given as {@code --name=value}. Anything not recognized here is passed on to the
+ * application, so Spring properties like {@code --querydsl.admission.enabled=false} work as well.
+ */
+final class LoadTestOptions {
+
+    int members = 100_000;
+
+    int teams = 100;
+
+    double rate = 200;
+
+    int warmUpSeconds = 10;
+
+    int durationSeconds = 60;
+
+    int maxInFlight = 1_000;
+
+    long seed = 42;
+
+    Path report = Paths.get("build/loadtest/report.txt");
+
+    /** template name to weight; unset templates keep their default weight */
+    final Map<String, Integer> mix = new LinkedHashMap<>();
+
+    final Map<String, String> applicationArgs = new LinkedHashMap<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "members":
+                    options.members = Integer.parseInt(value);
+                    break;
+                case "teams":
+                    options.teams = Integer.parseInt(value);
+                    break;
+                case "rate":
+                    options.rate = Double.parseDouble(value);
+                    break;
+                case "warm-up":
+                    options.warmUpSeconds = Integer.parseInt(value);
+                    break;
+                case "duration":
+                    options.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "max-in-flight":
+                    options.maxInFlight = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                case "report":
+                    options.report = Paths.get(value);
+                    break;
+                case "mix":
+                    // v1-username=10,v2-page=30
+                    for (String entry : value.split(",")) {
+                        String[] weight = entry.split("=");
+                        options.mix.put(weight[0].trim(), Integer.parseInt(weight[1].trim()));
+                    }
+                    break;
+                default:
+                    options.applicationArgs.put(name, value);
+            }
+        }
+        if (options.members < 1 || options.teams < 1 || options.rate <= 0 || options.durationSeconds < 1) {
+            throw new IllegalArgumentException("members, teams, rate and duration must be positive");
+        }
+        return options;
+    }
+
+}
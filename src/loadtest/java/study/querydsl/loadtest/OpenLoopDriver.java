@@ -0,0 +1,141 @@
+package study.querydsl.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends searches at a fixed arrival rate, whatever the server does: request {@code i} is due at
+ * {@code start + i / rate} and is sent then without waiting for earlier responses (an open model). Latency is
+ * measured from when a request was due, not from when it was actually sent, so a stalled server or a dispatcher
+ * that fell behind shows up in the percentiles instead of silently lowering the load (coordinated omission).
+ * <p>
+ * At most {@code max-in-flight} requests are outstanding; requests due beyond that are not sent and counted as
+ * dropped. Results of requests due during the warm-up are discarded.
+ */
+final class OpenLoopDriver {
+
+    /** latencies and outcomes of one template over one phase */
+    static final class Results {
+
+        final Histogram latencyMicros = new ConcurrentHistogram(3);
+
+        final LongAdder ok = new LongAdder();
+
+        final LongAdder redirected = new LongAdder();
+
+        final LongAdder failed = new LongAdder();
+
+        final LongAdder dropped = new LongAdder();
+    }
+
+    private final HttpClient client;
+
+    private final ExecutorService callbacks;
+
+    private final String baseUrl;
+
+    private final SearchMix mix;
+
+    private final LoadTestOptions options;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenLoopDriver(String baseUrl, SearchMix mix, LoadTestOptions options) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.options = options;
+        this.callbacks = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "loadtest-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // redirects are what admission control answers, so they are counted rather than followed
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(callbacks)
+            .build();
+    }
+
+    /**
+     * @return the results of the measured phase by template, in mix order
+     */
+    Map<SearchMix.Template, Results> run() throws InterruptedException {
+        Map<SearchMix.Template, Results> warmUp = newResults();
+        Map<SearchMix.Template, Results> measured = newResults();
+        SplittableRandom random = new SplittableRandom(options.seed);
+
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmUpSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            SearchMix.Search search = mix.next(random);
+            Results results = (due < measureFrom ? warmUp : measured).get(search.template);
+            if (inFlight.incrementAndGet() > options.maxInFlight) {
+                inFlight.decrementAndGet();
+                results.dropped.increment();
+                continue;
+            }
+            send(search, due, results);
+        }
+
+        // responses still outstanding belong to the measurement; give them the longest a request may take
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(10);
+        }
+        callbacks.shutdownNow();
+        return measured;
+    }
+
+    private void send(SearchMix.Search search, long due, Results results) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + search.pathAndQuery))
+            .timeout(Duration.ofSeconds(30))
+            .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            results.latencyMicros.recordValue(Math.max(0, (System.nanoTime() - due) / 1_000));
+            if (failure != null || response.statusCode() >= 400) {
+                results.failed.increment();
+            } else if (response.statusCode() >= 300) {
+                results.redirected.increment();
+            } else {
+                results.ok.increment();
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    private Map<SearchMix.Template, Results> newResults() {
+        Map<SearchMix.Template, Results> results = new LinkedHashMap<>();
+        mix.templates().forEach(template -> results.put(template, new Results()));
+        return results;
+    }
+
+}
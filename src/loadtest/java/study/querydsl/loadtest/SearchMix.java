@@ -0,0 +1,112 @@
+package study.querydsl.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.BiFunction;
+
+/**
+ * Weighted mix of member searches: each {@link Template} builds one kind of request to {@code /v1},
+ * {@code /v2} or {@code /v3/members}, with a {@code MemberSearchCondition} and, where paged, a {@code Pageable}
+ * drawn at random over the synthetic dataset.
+ */
+final class SearchMix {
+
+    static final class Template {
+
+        final String name;
+
+        final String endpoint;
+
+        final int defaultWeight;
+
+        private final BiFunction<SplittableRandom, LoadTestOptions, String> query;
+
+        Template(String name, String endpoint, int defaultWeight,
+                 BiFunction<SplittableRandom, LoadTestOptions, String> query) {
+            this.name = name;
+            this.endpoint = endpoint;
+            this.defaultWeight = defaultWeight;
+            this.query = query;
+        }
+    }
+
+    static final class Search {
+
+        final Template template;
+
+        final String pathAndQuery;
+
+        Search(Template template, String pathAndQuery) {
+            this.template = template;
+            this.pathAndQuery = pathAndQuery;
+        }
+    }
+
+    static final List<Template> TEMPLATES = Collections.unmodifiableList(Arrays.asList(
+        new Template("v1-team-age", "/v1/members", 25, (random, options) -> {
+            int age = random.nextInt(SyntheticDataset.MAX_AGE - 9);
+            return "teamName=team" + random.nextInt(options.teams) + "&ageGoe=" + age + "&ageLoe=" + (age + 9);
+        }),
+        new Template("v1-username", "/v1/members", 20, (random, options) ->
+            "username=member" + random.nextInt(options.members)),
+        new Template("v1-missing-username", "/v1/members", 5, (random, options) ->
+            "username=ghost" + random.nextInt(options.members)),
+        new Template("v2-age-page", "/v2/members", 25, (random, options) ->
+            "ageGoe=" + random.nextInt(SyntheticDataset.MAX_AGE + 1) + "&page=" + random.nextInt(10) + "&size=20"),
+        new Template("v3-team-page", "/v3/members", 20, (random, options) ->
+            "teamName=team" + random.nextInt(options.teams) + "&page=" + random.nextInt(5) + "&size=20"),
+        new Template("v3-deep-page", "/v3/members", 5, (random, options) ->
+            "page=" + random.nextInt(Math.max(1, options.members / 50)) + "&size=50")));
+
+    private final List<Template> templates = new ArrayList<>();
+
+    private final int[] cumulativeWeights;
+
+    private final LoadTestOptions options;
+
+    SearchMix(LoadTestOptions options) {
+        this.options = options;
+        Map<String, Integer> weights = options.mix;
+        for (String name : weights.keySet()) {
+            if (TEMPLATES.stream().noneMatch(template -> template.name.equals(name))) {
+                throw new IllegalArgumentException("Unknown search template " + name);
+            }
+        }
+
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (Template template : TEMPLATES) {
+            int weight = weights.getOrDefault(template.name, template.defaultWeight);
+            if (weight > 0) {
+                total += weight;
+                templates.add(template);
+                cumulative.add(total);
+            }
+        }
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("The search mix has no template with a positive weight");
+        }
+        this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    Search next(SplittableRandom random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, pick + 1);
+        Template template = templates.get(index >= 0 ? index : -index - 1);
+        return new Search(template, template.endpoint + "?" + template.query.apply(random, options));
+    }
+
+    List<Template> templates() {
+        return templates;
+    }
+
+    int weight(Template template) {
+        int index = templates.indexOf(template);
+        return cumulativeWeights[index] - (index == 0 ? 0 : cumulativeWeights[index - 1]);
+    }
+
+}
@@ -0,0 +1,46 @@
+package study.querydsl.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fills the empty schema with {@code teams} teams and {@code members} members through JDBC batches: usernames
+ * {@code member0 .. member(n-1)}, ages uniform in 0..99 and members spread round robin over the teams, so a
+ * run with the same options and seed always searches the same data. Member counts and id sequences are set
+ * afterwards, as the application would have left them.
+ */
+final class SyntheticDataset {
+
+    static final int MAX_AGE = 99;
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private SyntheticDataset() {
+    }
+
+    static void load(JdbcTemplate jdbcTemplate, int members, int teams, long seed) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (long team = 1; team <= teams; team++) {
+            batch.add(new Object[]{team, "team" + (team - 1)});
+        }
+        jdbcTemplate.batchUpdate("insert into team (team_id, name, member_count) values (?, ?, 0)", batch);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        batch.clear();
+        for (long member = 1; member <= members; member++) {
+            batch.add(new Object[]{member, "member" + (member - 1), random.nextInt(MAX_AGE + 1), (member - 1) % teams + 1});
+            if (batch.size() == BATCH_SIZE || member == members) {
+                jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+
+        jdbcTemplate.update("update team t set member_count = (select count(*) from member m where m.team_id = t.team_id)");
+        jdbcTemplate.execute("alter sequence team_seq restart with " + (teams + 1));
+        jdbcTemplate.execute("alter sequence member_seq restart with " + (members + 1));
+    }
+
+}
@@ -1,11 +1,14 @@
 package study.querydsl.controller;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.shard.ShardedMemberRepository;
+import study.querydsl.startup.DatabaseSnapshot;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
@@ -13,14 +16,54 @@ import javax.persistence.PersistenceContext;
 
 @Profile("local")
 @Component
-@RequiredArgsConstructor
 public class InitMember {
 
     private final InitMemberService initMemberService;
 
+    private final ObjectProvider<ShardedMemberRepository> shardedMemberRepository;
+
+    private final ObjectProvider<DatabaseSnapshot> snapshot;
+
+    private final boolean deferred;
+
+    public InitMember(InitMemberService initMemberService,
+                      ObjectProvider<ShardedMemberRepository> shardedMemberRepository,
+                      ObjectProvider<DatabaseSnapshot> snapshot,
+                      @Value("${querydsl.startup.background-warm-up:false}") boolean deferred) {
+        this.initMemberService = initMemberService;
+        this.shardedMemberRepository = shardedMemberRepository;
+        this.snapshot = snapshot;
+        this.deferred = deferred;
+    }
+
     @PostConstruct
     public void init() {
-        initMemberService.init();
+        // otherwise StartupWarmUp loads the data once the application is ready
+        if (!deferred) {
+            load();
+        }
+    }
+
+    public void load() {
+        DatabaseSnapshot databaseSnapshot = snapshot.getIfAvailable();
+        if (databaseSnapshot == null || !databaseSnapshot.restore()) {
+            initMemberService.init();
+            if (databaseSnapshot != null) {
+                databaseSnapshot.save();
+            }
+        }
+        // the shards are separate databases and not part of the snapshot
+        shardedMemberRepository.ifAvailable(this::initShards);
+    }
+
+    private void initShards(ShardedMemberRepository repository) {
+        Long teamA = repository.saveTeam("TeamA");
+        Long teamB = repository.saveTeam("TeamB");
+
+        for (int i = 0; i < 100; i++) {
+            Long selectedTeam = i % 2 == 0 ? teamA : teamB;
+            repository.saveMember("member" + i, i, selectedTeam);
+        }
     }
 
     @Component
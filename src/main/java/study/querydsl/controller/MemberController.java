@@ -1,37 +1,163 @@
 package study.querydsl.controller;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import study.querydsl.controller.dto.MemberSearchCondition;
 import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
 import study.querydsl.repository.MemberJpaRepository;
-import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.adaptive.AdaptiveMemberSearch;
+import study.querydsl.repository.adaptive.AdaptiveSearchResult;
+import study.querydsl.repository.sql.SqlMemberBatchSearch;
+import study.querydsl.repository.support.QueryDeadline;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
-@RequiredArgsConstructor
 public class MemberController {
 
-    private final MemberJpaRepository repository;
-    private final MemberRepository memberRepository;
+    static final int STREAM_CHUNK_SIZE = 500;
 
+    static final long STREAM_CHUNK_BUDGET = 1000;
+
+    private final MemberRepositoryCustom memberSearch;
+
+    private final AdaptiveMemberSearch adaptiveSearch;
+
+    private final SqlMemberBatchSearch batchSearch;
+
+    private final MemberJpaRepository memberJpaRepository;
+
+    private final SearchAdmissionInterceptor searchAdmission;
+
+    private final ObjectWriter streamWriter;
+
+    private final boolean shardedSearch;
+
+    // keeps the data layer out of controller creation when beans are lazily initialized
+    public MemberController(@Lazy MemberRepositoryCustom memberSearch, @Lazy AdaptiveMemberSearch adaptiveSearch,
+                            @Lazy SqlMemberBatchSearch batchSearch, @Lazy MemberJpaRepository memberJpaRepository,
+                            SearchAdmissionInterceptor searchAdmission, ObjectMapper objectMapper,
+                            @Value("${querydsl.search.backend:jpa}") String searchBackend) {
+        this.memberSearch = memberSearch;
+        this.adaptiveSearch = adaptiveSearch;
+        this.batchSearch = batchSearch;
+        this.memberJpaRepository = memberJpaRepository;
+        this.searchAdmission = searchAdmission;
+        this.shardedSearch = "sharded".equals(searchBackend);
+        // flushed once per chunk instead of once per member
+        this.streamWriter = objectMapper.writerFor(MemberTeamDto.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @QueryBudget(3000)
+    @SearchAdmission(value = SearchAdmission.Mode.UNPAGED, stream = "/v1/members/stream")
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-        return repository.search(condition);
+        return memberSearch.search(condition);
+    }
+
+    /**
+     * One result list per condition, from the same backend as {@code /v1/members}. The shards are searched one
+     * condition at a time; the other backends share the main database, where the conditions are combined into
+     * {@code UNION ALL} statements. Admitted by the rows all conditions together are expected to return, see
+     * {@link SearchAdmissionInterceptor#admitBatch}.
+     */
+    @QueryBudget(3000)
+    @PostMapping("/v1/members/batch")
+    public List<List<MemberTeamDto>> searchMembersBatch(@RequestBody List<MemberSearchCondition> conditions,
+                                                        HttpServletRequest request) throws InterruptedException {
+        if (conditions.size() > batchSearch.getMaxConditions()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "At most " + batchSearch.getMaxConditions() + " conditions per batch");
+        }
+        searchAdmission.admitBatch(conditions, request);
+        if (shardedSearch) {
+            return conditions.stream().map(memberSearch::search).collect(Collectors.toList());
+        }
+        return batchSearch.search(conditions);
     }
 
+    /**
+     * Every matching member as newline-delimited JSON, read and written {@value #STREAM_CHUNK_SIZE} at a time,
+     * so neither side holds the whole result. Not under a {@link QueryBudget}, as it runs as long as the client
+     * reads; instead each chunk is read in a short read-only transaction of its own, under a budget of
+     * {@value #STREAM_CHUNK_BUDGET} ms, and written only after it has ended, so a slow client holds no connection.
+     * Always reads the main database, whichever {@code querydsl.search.backend} is selected.
+     */
+    @SearchAdmission(SearchAdmission.Mode.STREAMING)
+    @GetMapping(value = "/v1/members/stream", produces = "application/x-ndjson")
+    public void streamMembers(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        JsonGenerator gen = streamWriter.getFactory().createGenerator(response.getOutputStream());
+        gen.setRootValueSeparator(new SerializedString("\n"));
+        Long lastId = null;
+        while (true) {
+            List<Member> chunk;
+            QueryDeadline.start(STREAM_CHUNK_BUDGET);
+            try {
+                chunk = memberJpaRepository.readChunk(condition, lastId, STREAM_CHUNK_SIZE);
+            } finally {
+                QueryDeadline.clear();
+            }
+            for (Member member : chunk) {
+                Team team = member.getTeam();
+                streamWriter.writeValue(gen, new MemberTeamDto(member.getId(), member.getUsername(), member.getAge(),
+                    team == null ? null : team.getId(), team == null ? null : team.getName()));
+            }
+            gen.flush();
+            if (chunk.size() < STREAM_CHUNK_SIZE) {
+                break;
+            }
+            lastId = chunk.get(chunk.size() - 1).getId();
+        }
+        gen.writeRaw('\n');
+        gen.close();
+    }
+
+    @QueryBudget(1000)
+    @SearchAdmission(SearchAdmission.Mode.PAGED)
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+        return memberSearch.searchPageSimple(condition, pageable);
     }
 
+    @QueryBudget(1000)
+    @SearchAdmission(SearchAdmission.Mode.PAGED)
     @GetMapping("/v3/members")
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+        return memberSearch.searchPageComplex(condition, pageable);
+    }
+
+    @QueryBudget(3000)
+    @SearchAdmission(value = SearchAdmission.Mode.UNPAGED, stream = "/v1/members/stream")
+    @GetMapping("/v4/members")
+    public ResponseEntity<List<MemberTeamDto>> searchMemberV4(MemberSearchCondition condition) {
+        AdaptiveSearchResult result = adaptiveSearch.search(condition);
+        return ResponseEntity.ok()
+            .header("X-Fetch-Strategy", result.getDecision().getStrategy().name())
+            .header("X-Fetch-Reason", result.getDecision().getReason())
+            .body(result.getContent());
     }
 
 }
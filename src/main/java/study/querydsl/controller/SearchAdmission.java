@@ -0,0 +1,33 @@
+package study.querydsl.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts the annotated member search endpoint under {@link SearchAdmissionInterceptor}. Its request parameters
+ * are read as a {@link study.querydsl.controller.dto.MemberSearchCondition}, plus {@code size} when paged.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SearchAdmission {
+
+    Mode value();
+
+    /**
+     * Where an unpaged search above {@code querydsl.admission.max-unpaged-rows} is redirected, with the same
+     * parameters; refused when empty.
+     */
+    String stream() default "";
+
+    enum Mode {
+        /** returns every match at once */
+        UNPAGED,
+        /** returns one page of {@code size} matches */
+        PAGED,
+        /** writes every match, one chunk at a time */
+        STREAMING
+    }
+
+}
@@ -0,0 +1,252 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberSearchCostEstimator;
+import study.querydsl.repository.support.QueryDeadline;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Admission control for {@link SearchAdmission} endpoints, based on the number of rows
+ * {@link MemberSearchCostEstimator} expects the search to return.
+ * <p>
+ * Searches expected to return at most {@code expensive-rows} rows (a page counts as at most its size) go
+ * straight through. Expensive ones need one of {@code expensive-permits} permits; up to {@code queue-capacity}
+ * of them wait at most {@code queue-timeout} ms, higher {@value #PRIORITY_HEADER} first and cheaper first among
+ * equals, and the rest are answered 503. Unpaged searches expected to return more than
+ * {@code max-unpaged-rows} rows are redirected to the endpoint's streaming variant, or answered 422 when it has
+ * none. The streaming variants read the main database, so with {@code querydsl.search.backend=sharded} nothing
+ * is redirected and those searches are answered 422 as well. Streams run as long as their client reads, so
+ * they are not costed but limited to {@code max-streams} at a time; further ones are answered 503 right away.
+ * Batches, whose conditions are in the body, are admitted by their handler through {@link #admitBatch}.
+ * Decisions are counted in {@value #METRIC} by {@code outcome}. All settings are under
+ * {@code querydsl.admission}; disabled with {@code enabled=false}.
+ */
+@Component
+public class SearchAdmissionInterceptor implements HandlerInterceptor {
+
+    static final String METRIC = "querydsl.admission";
+
+    static final String PRIORITY_HEADER = "X-Search-Priority";
+
+    private static final String PERMIT = SearchAdmissionInterceptor.class.getName() + ".permit";
+
+    private static final String STREAM = SearchAdmissionInterceptor.class.getName() + ".stream";
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final ObjectProvider<MemberSearchCostEstimator> estimator;
+
+    private final MeterRegistry meterRegistry;
+
+    private final SearchBulkhead bulkhead;
+
+    private final Semaphore streams;
+
+    private final boolean enabled;
+
+    private final long expensiveRows;
+
+    private final long maxUnpagedRows;
+
+    private final long queueTimeoutMillis;
+
+    private final boolean streamsAvailable;
+
+    // the estimator is looked up on first use, so creating the web layer does not create the data layer
+    public SearchAdmissionInterceptor(ObjectProvider<MemberSearchCostEstimator> estimator,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${querydsl.admission.enabled:true}") boolean enabled,
+                                      @Value("${querydsl.admission.expensive-rows:1000}") long expensiveRows,
+                                      @Value("${querydsl.admission.max-unpaged-rows:10000}") long maxUnpagedRows,
+                                      @Value("${querydsl.admission.expensive-permits:2}") int expensivePermits,
+                                      @Value("${querydsl.admission.queue-capacity:16}") int queueCapacity,
+                                      @Value("${querydsl.admission.queue-timeout:2000}") long queueTimeoutMillis,
+                                      @Value("${querydsl.admission.max-streams:4}") int maxStreams,
+                                      @Value("${querydsl.search.backend:jpa}") String searchBackend) {
+        this.estimator = estimator;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new SearchBulkhead(expensivePermits, queueCapacity);
+        this.streams = new Semaphore(maxStreams);
+        this.enabled = enabled;
+        this.expensiveRows = expensiveRows;
+        this.maxUnpagedRows = maxUnpagedRows;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.streamsAvailable = !"sharded".equals(searchBackend);
+        Gauge.builder(METRIC + ".queued", bulkhead, SearchBulkhead::queued).register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+        throws IOException, InterruptedException {
+        if (!enabled || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        SearchAdmission admission = ((HandlerMethod) handler).getMethodAnnotation(SearchAdmission.class);
+        if (admission == null) {
+            return true;
+        }
+
+        if (admission.value() == SearchAdmission.Mode.STREAMING) {
+            return stream(request, response);
+        }
+
+        long rows = estimator.getObject().estimateRows(condition(request));
+        if (admission.value() == SearchAdmission.Mode.UNPAGED && rows > maxUnpagedRows) {
+            return oversized(request, response, admission, rows);
+        }
+        long cost = admission.value() == SearchAdmission.Mode.PAGED ? Math.min(rows, pageSize(request)) : rows;
+        if (cost <= expensiveRows) {
+            count("cheap");
+            return true;
+        }
+
+        if (!bulkhead.acquire(intParameter(request.getHeader(PRIORITY_HEADER), 0), cost, queueTimeoutMillis)) {
+            count("rejected");
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many expensive searches");
+            return false;
+        }
+        request.setAttribute(PERMIT, Boolean.TRUE);
+        count("admitted");
+        return true;
+    }
+
+    /**
+     * Admits a batch of unpaged searches, each returning every match, by the rows all of them together are
+     * expected to return: refused above {@code max-unpaged-rows}, as there is no streaming variant, and queued for
+     * a permit above {@code expensive-rows}. Time spent waiting is not taken from the request's query budget.
+     * The permit is released when the request completes.
+     *
+     * @throws ResponseStatusException 422 when refused, 503 with {@code Retry-After} when no permit was free
+     */
+    void admitBatch(List<MemberSearchCondition> conditions, HttpServletRequest request) throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        long rows = 0;
+        for (MemberSearchCondition condition : conditions) {
+            rows = Math.min(maxUnpagedRows + 1, rows + estimator.getObject().estimateRows(condition));
+        }
+        if (rows > maxUnpagedRows) {
+            count("refused");
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Batch matches more than " + maxUnpagedRows + " members; narrow it down or use a paged endpoint");
+        }
+        if (rows <= expensiveRows) {
+            count("cheap");
+            return;
+        }
+
+        long budget = QueryDeadline.remainingMillis();
+        if (!bulkhead.acquire(intParameter(request.getHeader(PRIORITY_HEADER), 0), rows, queueTimeoutMillis)) {
+            count("rejected");
+            throw new TooManySearchesException();
+        }
+        request.setAttribute(PERMIT, Boolean.TRUE);
+        count("admitted");
+        if (QueryDeadline.isActive()) {
+            QueryDeadline.start(budget);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT) != null) {
+            request.removeAttribute(PERMIT);
+            bulkhead.release();
+        }
+        if (request.getAttribute(STREAM) != null) {
+            request.removeAttribute(STREAM);
+            streams.release();
+        }
+    }
+
+    private boolean stream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!streams.tryAcquire()) {
+            count("rejected");
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many streams");
+            return false;
+        }
+        request.setAttribute(STREAM, Boolean.TRUE);
+        count("streamed");
+        return true;
+    }
+
+    private boolean oversized(HttpServletRequest request, HttpServletResponse response, SearchAdmission admission,
+                              long rows) throws IOException {
+        if (admission.stream().isEmpty() || !streamsAvailable) {
+            count("refused");
+            response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                "Search matches about " + rows + " members; narrow it down or use a paged endpoint");
+            return false;
+        }
+        count("redirected");
+        String query = request.getQueryString();
+        response.setStatus(HttpStatus.SEE_OTHER.value());
+        response.setHeader(HttpHeaders.LOCATION, request.getContextPath() + admission.stream()
+            + (query == null ? "" : "?" + query));
+        return false;
+    }
+
+    private static MemberSearchCondition condition(HttpServletRequest request) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(request.getParameter("username"));
+        condition.setTeamName(request.getParameter("teamName"));
+        condition.setAgeGoe(integerParameter(request.getParameter("ageGoe")));
+        condition.setAgeLoe(integerParameter(request.getParameter("ageLoe")));
+        return condition;
+    }
+
+    private static int pageSize(HttpServletRequest request) {
+        return intParameter(request.getParameter("size"), DEFAULT_PAGE_SIZE);
+    }
+
+    private static int intParameter(String value, int defaultValue) {
+        Integer parsed = integerParameter(value);
+        return parsed == null ? defaultValue : parsed;
+    }
+
+    // malformed numbers are left for data binding to reject
+    private static Integer integerParameter(String value) {
+        try {
+            return value == null || value.isEmpty() ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter(METRIC, "outcome", outcome).increment();
+    }
+
+    private static class TooManySearchesException extends ResponseStatusException {
+
+        TooManySearchesException() {
+            super(HttpStatus.SERVICE_UNAVAILABLE, "Too many expensive searches");
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "1");
+            return headers;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package study.querydsl.controller;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed number of permits with a bounded waiting queue served by priority: higher {@code priority} first,
+ * then lower {@code cost}, then arrival order. A released permit is handed directly to the next waiter, so
+ * a newcomer never overtakes the queue.
+ */
+class SearchBulkhead {
+
+    private static final Comparator<Waiter> ORDER = Comparator.<Waiter>comparingInt(waiter -> -waiter.priority)
+        .thenComparingLong(waiter -> waiter.cost)
+        .thenComparingLong(waiter -> waiter.sequence);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(ORDER);
+
+    private final int queueCapacity;
+
+    private int available;
+
+    private long sequence;
+
+    SearchBulkhead(int permits, int queueCapacity) {
+        this.available = permits;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @return {@code false} when the queue is full or no permit was handed over within {@code timeoutMillis}
+     */
+    boolean acquire(int priority, long cost, long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            if (available > 0 && queue.isEmpty()) {
+                available--;
+                return true;
+            }
+            if (queue.size() >= queueCapacity) {
+                return false;
+            }
+
+            Waiter waiter = new Waiter(priority, cost, sequence++, lock.newCondition());
+            queue.add(waiter);
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            try {
+                while (!waiter.granted && remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                // the permit may have been handed over just before the interrupt; pass it on
+                if (waiter.granted) {
+                    release();
+                } else {
+                    queue.remove(waiter);
+                }
+                throw e;
+            }
+            if (!waiter.granted) {
+                queue.remove(waiter);
+            }
+            return waiter.granted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            Waiter next = queue.poll();
+            if (next == null) {
+                available++;
+            } else {
+                next.granted = true;
+                next.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+
+        private final int priority;
+
+        private final long cost;
+
+        private final long sequence;
+
+        private final Condition condition;
+
+        private boolean granted;
+
+        Waiter(int priority, long cost, long sequence, Condition condition) {
+            this.priority = priority;
+            this.cost = cost;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+    }
+
+}
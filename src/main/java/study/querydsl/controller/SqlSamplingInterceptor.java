@@ -0,0 +1,31 @@
+package study.querydsl.controller;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.repository.support.SqlSampling;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SqlSamplingInterceptor implements HandlerInterceptor {
+
+    private final double sampleRate;
+
+    public SqlSamplingInterceptor(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            SqlSampling.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SqlSampling.clear();
+    }
+
+}
@@ -0,0 +1,26 @@
+package study.querydsl.controller;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.controller.dto.TeamDto;
+import study.querydsl.repository.TeamRepository;
+
+@RestController
+public class TeamController {
+
+    private final TeamRepository teamRepository;
+
+    public TeamController(@Lazy TeamRepository teamRepository) {
+        this.teamRepository = teamRepository;
+    }
+
+    @QueryBudget(1000)
+    @GetMapping("/v1/teams")
+    public Page<TeamDto> teams(Pageable pageable) {
+        return teamRepository.findTeams(pageable);
+    }
+
+}
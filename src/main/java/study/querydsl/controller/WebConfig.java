@@ -0,0 +1,28 @@
+package study.querydsl.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Value("${querydsl.sql-recorder.sample-rate:0.01}")
+    private double sqlSampleRate;
+
+    private final SearchAdmissionInterceptor searchAdmissionInterceptor;
+
+    public WebConfig(SearchAdmissionInterceptor searchAdmissionInterceptor) {
+        this.searchAdmissionInterceptor = searchAdmissionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // before the query budget starts, so time spent waiting for admission is not taken from it
+        registry.addInterceptor(searchAdmissionInterceptor);
+        registry.addInterceptor(new QueryBudgetInterceptor());
+        registry.addInterceptor(new SqlSamplingInterceptor(sqlSampleRate));
+    }
+
+}
@@ -0,0 +1,29 @@
+package study.querydsl.controller.dto;
+
+import lombok.Data;
+
+@Data
+public class MemberAgeRankDto {
+
+    private Long memberId;
+
+    private String username;
+
+    private int age;
+
+    private Long teamId;
+
+    private String teamName;
+
+    private long ageRank;
+
+    public MemberAgeRankDto(Long memberId, String username, int age, Long teamId, String teamName, long ageRank) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.ageRank = ageRank;
+    }
+
+}
@@ -0,0 +1,20 @@
+package study.querydsl.controller.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamDto {
+
+    private Long teamId;
+
+    private String name;
+
+    private long memberCount;
+
+    public TeamDto(Long teamId, String name, long memberCount) {
+        this.teamId = teamId;
+        this.name = name;
+        this.memberCount = memberCount;
+    }
+
+}
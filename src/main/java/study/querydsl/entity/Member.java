@@ -4,9 +4,13 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.querydsl.repository.UsernameFilter;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -15,12 +19,16 @@ import javax.persistence.ManyToOne;
 import java.util.Objects;
 
 @Entity
+@EntityListeners(UsernameFilter.Recorder.class)
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "member_id")
+    @GenericGenerator(name = "member_id", strategy = "study.querydsl.repository.support.BlockIdGenerator",
+        parameters = @Parameter(name = "sequence_name", value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
 
@@ -50,6 +58,14 @@ public class Member {
         }
     }
 
+    public void addAge(int amount) {
+        this.age += amount;
+    }
+
+    public void changeUsername(String username) {
+        this.username = username;
+    }
+
     public void changeTeam(Team team) {
         this.team = team;
         team.getMembers().add(this);
@@ -4,28 +4,46 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.querydsl.repository.TeamNameCache;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_member_count", columnList = "member_count"))
+@EntityListeners(TeamNameCache.Invalidator.class)
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "team_id")
+    @GenericGenerator(name = "team_id", strategy = "study.querydsl.repository.support.BlockIdGenerator",
+        parameters = @Parameter(name = "sequence_name", value = "team_seq"))
     @Column(name = "team_id")
     private Long id;
 
     private String name;
 
+    /**
+     * Maintained in the database only, by {@code MemberCountMaintainer}; Hibernate never writes it, and a loaded
+     * team keeps the value it was read with.
+     */
+    @Column(name = "member_count", insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long memberCount;
+
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
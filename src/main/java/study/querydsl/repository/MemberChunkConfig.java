@@ -0,0 +1,34 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Worker pool shared by all parallel
+ * {@link MemberJpaRepository#forEachChunk(study.querydsl.controller.dto.MemberSearchCondition, int, int, Consumer)}
+ * walks: {@code querydsl.chunk-workers.threads} threads and room for {@code queue-capacity} waiting chunks.
+ * When the queue is full the walking thread processes the chunk itself, which slows the walk down instead of
+ * queueing more.
+ */
+@Configuration
+public class MemberChunkConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService memberChunkExecutor(@Value("${querydsl.chunk-workers.threads:4}") int threads,
+                                               @Value("${querydsl.chunk-workers.queue-capacity:16}") int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "member-chunk-worker");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+}
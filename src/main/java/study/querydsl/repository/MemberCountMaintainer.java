@@ -0,0 +1,169 @@
+package study.querydsl.repository;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps {@code team.member_count} in step with member inserts, deletes and team changes.
+ * <p>
+ * Runs as a Hibernate post-insert/update/delete listener that sums the changes per team while a flush executes,
+ * and applies them when the flush ends with one batched {@code member_count = member_count + ?} per team on the
+ * flushing connection. Concurrent writers never lose an update, the change commits or rolls back with the
+ * members, and the member inserts themselves stay in one JDBC batch. Writes that bypass the session, like
+ * bulk updates, JDBC or an update of a detached member without its previous state, are not seen here;
+ * {@link TeamRepository#recountMembers} corrects specific teams and {@link TeamMemberCountReconciler}
+ * catches the rest. Adjusted teams are published as {@value #MEMBER_COUNT} rather than {@code Team}, so caches of
+ * team names are not dropped by every member insert.
+ */
+@Component
+public class MemberCountMaintainer implements Integrator, PostInsertEventListener, PostUpdateEventListener,
+    PostDeleteEventListener, FlushEventListener, AutoFlushEventListener {
+
+    public static final String MEMBER_COUNT = "Team.memberCount";
+
+    private static final String ADJUST = "update team set member_count = member_count + ? where team_id = ?";
+
+    private final Map<EventSource, Map<Long, Integer>> pending = new ConcurrentHashMap<>();
+
+    private final InvalidationPublisher invalidations;
+
+    public MemberCountMaintainer(InvalidationPublisher invalidations) {
+        this.invalidations = invalidations;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        // appended, so these run after Hibernate's own flush has executed the member statements
+        registry.appendListeners(EventType.FLUSH, this);
+        registry.appendListeners(EventType.AUTO_FLUSH, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            record(event.getSession(), teamId(event.getState(), event.getPersister()), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member) || event.getOldState() == null) {
+            return;
+        }
+        Long from = teamId(event.getOldState(), event.getPersister());
+        Long to = teamId(event.getState(), event.getPersister());
+        if (!Objects.equals(from, to)) {
+            record(event.getSession(), from, -1);
+            record(event.getSession(), to, 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            record(event.getSession(), teamId(event.getDeletedState(), event.getPersister()), -1);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) {
+        apply(event.getSession());
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        apply(event.getSession());
+    }
+
+    private void record(EventSource session, Long teamId, int delta) {
+        if (teamId == null) {
+            return;
+        }
+        pending.computeIfAbsent(session, key -> {
+            // a flush that fails half way never reaches apply(); its changes go with the transaction
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> pending.remove(key));
+            return new HashMap<>();
+        }).merge(teamId, delta, Integer::sum);
+    }
+
+    private void apply(EventSource session) {
+        Map<Long, Integer> deltas = pending.remove(session);
+        if (deltas == null) {
+            return;
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(ADJUST);
+        try {
+            for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+                statement.setInt(1, entry.getValue());
+                statement.setLong(2, entry.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "could not adjust team member count", ADJUST);
+        } finally {
+            jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+            jdbc.afterStatementExecution();
+        }
+        deltas.keySet().forEach(teamId -> invalidations.changed(MEMBER_COUNT, teamId));
+    }
+
+    private static Long teamId(Object[] state, EntityPersister persister) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team == null ? null : ((Team) team).getId();
+    }
+
+}
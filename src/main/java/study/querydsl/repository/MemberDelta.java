@@ -0,0 +1,41 @@
+package study.querydsl.repository;
+
+/**
+ * Pending, not yet written change to one member row. Deltas for the same row are merged:
+ * age increments add up and the latest username wins.
+ */
+final class MemberDelta {
+
+    private final int ageDelta;
+
+    private final String username;
+
+    MemberDelta(int ageDelta, String username) {
+        this.ageDelta = ageDelta;
+        this.username = username;
+    }
+
+    static MemberDelta age(int ageDelta) {
+        return new MemberDelta(ageDelta, null);
+    }
+
+    static MemberDelta username(String username) {
+        return new MemberDelta(0, username);
+    }
+
+    MemberDelta merge(MemberDelta next) {
+        if (next == null) {
+            return this;
+        }
+        return new MemberDelta(ageDelta + next.ageDelta, next.username != null ? next.username : username);
+    }
+
+    int getAgeDelta() {
+        return ageDelta;
+    }
+
+    String getUsername() {
+        return username;
+    }
+
+}
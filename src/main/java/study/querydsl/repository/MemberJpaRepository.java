@@ -4,7 +4,9 @@ import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.controller.dto.MemberSearchCondition;
 import study.querydsl.controller.dto.MemberTeamDto;
@@ -14,57 +16,244 @@ import study.querydsl.entity.Member;
 import study.querydsl.entity.QTeam;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static com.querydsl.core.util.ArrayUtils.isEmpty;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.*;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
+    static final int IN_BATCH_SIZE = 512;
+
     private final EntityManager em;
 
     private final JPAQueryFactory queryFactory;
 
-    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory) {
+    private final MemberWriteBehindBuffer writeBehindBuffer;
+
+    private final TeamNameCache teamNameCache;
+
+    private final UsernameFilter usernameFilter;
+
+    private final ExecutorService memberChunkExecutor;
+
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory, MemberWriteBehindBuffer writeBehindBuffer,
+                               TeamNameCache teamNameCache, UsernameFilter usernameFilter,
+                               ExecutorService memberChunkExecutor) {
         this.em = em;
         this.queryFactory = queryFactory;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.teamNameCache = teamNameCache;
+        this.usernameFilter = usernameFilter;
+        this.memberChunkExecutor = memberChunkExecutor;
     }
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
 
+    /**
+     * Loads a member for changing, so unlike the other reads it runs in a writable transaction. It also writes
+     * the member's pending {@link MemberWriteBehindBuffer} updates before reading.
+     */
+    @Transactional
     public Optional<Member> findById(Long id) {
-        return Optional.ofNullable(queryFactory.selectFrom(member)
+        Set<Long> written = writePending(Collections.singletonList(id));
+        Optional<Member> found = Optional.ofNullable(queryFactory.selectFrom(member)
             .where(member.id.eq(id))
             .fetchOne());
+        if (!written.isEmpty()) {
+            found.ifPresent(this::refreshIfClean);
+        }
+        return found;
+    }
+
+    /**
+     * Loads members by id in {@value #IN_BATCH_SIZE}-id {@code IN} batches, each padded to the next power of two
+     * by repeating its last id. Lists of any length then map onto a handful of query shapes, so Hibernate's
+     * query plan cache and the driver's statement cache keep getting hits.
+     *
+     * @return the members found, in the order their ids were first requested; unknown ids are skipped
+     */
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinctIds.remove(null);
+        Set<Long> written = writePending(distinctIds);
+
+        Map<Long, Member> found = new HashMap<>(distinctIds.size() * 2);
+        for (int from = 0; from < distinctIds.size(); from += IN_BATCH_SIZE) {
+            List<Long> batch = distinctIds.subList(from, Math.min(from + IN_BATCH_SIZE, distinctIds.size()));
+            queryFactory
+                .selectFrom(member)
+                .where(member.id.in(padToPowerOfTwo(batch)))
+                .fetch()
+                .forEach(m -> found.put(m.getId(), m));
+        }
+
+        List<Member> result = new ArrayList<>(found.size());
+        for (Long id : distinctIds) {
+            Member m = found.get(id);
+            if (m != null) {
+                if (written.contains(id)) {
+                    refreshIfClean(m);
+                }
+                result.add(m);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Walks the members matching {@code condition} in id order, {@code chunkSize} at a time, each chunk read
+     * with a keyset query ({@code id > last id of the previous chunk}) together with its team. After the
+     * consumer returns, changes it made are flushed and the persistence context is cleared, so memory is
+     * bounded by one chunk however many members match.
+     *
+     * @return the number of members processed
+     */
+    @Transactional
+    public long forEachChunk(MemberSearchCondition condition, int chunkSize, Consumer<List<Member>> consumer) {
+        return walkChunks(condition, chunkSize, false, chunk -> {
+            consumer.accept(chunk);
+            em.flush();
+            em.clear();
+        });
+    }
+
+    /**
+     * Read-only variant of {@link #forEachChunk(MemberSearchCondition, int, Consumer)} for consumers that do not
+     * write: the whole walk runs in one read-only transaction, and chunks are detached before the consumer gets
+     * them, with their team loaded, so nothing is dirty-checked or flushed.
+     *
+     * @return the number of members read
+     */
+    @Transactional(readOnly = true)
+    public long readChunks(MemberSearchCondition condition, int chunkSize, Consumer<List<Member>> consumer) {
+        return walkChunks(condition, chunkSize, true, consumer);
+    }
+
+    /**
+     * One chunk of the walk {@link #readChunks} makes: the first {@code chunkSize} members matching
+     * {@code condition} with an id above {@code lastId} (all when {@code null}), in id order, detached with
+     * their team loaded. Called once per chunk from outside a transaction, each chunk is read in a short
+     * transaction of its own, so no connection is held while the caller processes it.
+     */
+    public List<Member> readChunk(MemberSearchCondition condition, Long lastId, int chunkSize) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds) || noSuchUsername(condition.getUsername())) {
+            return Collections.emptyList();
+        }
+        List<Member> chunk = chunkAfter(condition, teamIds, lastId, chunkSize);
+        for (Member m : chunk) {
+            em.detach(m);
+            if (m.getTeam() != null) {
+                em.detach(m.getTeam());
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Like {@link #readChunks}, but chunks are handed to the shared {@code memberChunkExecutor} while the next
+     * chunk is read, so the walk keeps one read-only transaction and snapshot while consumers run in parallel.
+     * Workers get detached members with their team loaded; changes to them are not written back. At most
+     * {@code parallelism} chunks of one walk are queued or being processed, so memory stays bounded by
+     * {@code parallelism + 1} chunks. The first consumer failure stops the walk; chunks not started yet are
+     * skipped, and the failure is rethrown once the running ones have finished.
+     *
+     * @return the number of members processed
+     */
+    @Transactional(readOnly = true)
+    public long forEachChunk(MemberSearchCondition condition, int chunkSize, int parallelism,
+                             Consumer<List<Member>> consumer) {
+        Semaphore slots = new Semaphore(parallelism);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        long processed;
+        try {
+            processed = walkChunks(condition, chunkSize, true, chunk -> {
+                slots.acquireUninterruptibly();
+                if (failure.get() != null) {
+                    slots.release();
+                    throw failure.get();
+                }
+                memberChunkExecutor.execute(() -> {
+                    try {
+                        if (failure.get() == null) {
+                            consumer.accept(chunk);
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            });
+        } finally {
+            // the pool is shared, so nothing of this walk may still be running once it returns
+            slots.acquireUninterruptibly(parallelism);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return processed;
     }
 
     public List<Member> findAll() {
         return queryFactory
             .selectFrom(member)
+            .setHint(HINT_READONLY, true)
             .fetch();
 
     }
 
     public List<Member> findByUsername(String username) {
-        return queryFactory
+        if (!usernameFilter.mightExist(username, em)) {
+            return Collections.emptyList();
+        }
+
+        List<Member> result = queryFactory
             .selectFrom(member)
             .where(member.username.eq(username))
+            .setHint(HINT_READONLY, true)
             .fetch();
+        usernameFilter.lookedUp(!result.isEmpty());
+        return result;
     }
 
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
 
+        if (noSuchUsername(condition.getUsername())) {
+            return Collections.emptyList();
+        }
         BooleanBuilder builder = new BooleanBuilder();
         if (StringUtils.hasText(condition.getUsername())) {
             builder.and(member.username.eq(condition.getUsername()));
         }
         if (StringUtils.hasText(condition.getTeamName())) {
-            builder.and(team.name.eq(condition.getTeamName()));
+            List<Long> teamIds = teamNameCache.idsOf(condition.getTeamName());
+            if (teamIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            builder.and(member.team.id.in(teamIds));
         }
         if(condition.getAgeGoe() != null) {
             builder.and(member.age.goe(condition.getAgeGoe()));
@@ -89,6 +278,11 @@ public class MemberJpaRepository {
     }
 
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds) || noSuchUsername(condition.getUsername())) {
+            return Collections.emptyList();
+        }
+
         return queryFactory
             .select(new QMemberTeamDto(
                 member.id.as("memberId"),
@@ -101,7 +295,7 @@ public class MemberJpaRepository {
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                teamIdIn(teamIds),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
             )
@@ -109,24 +303,123 @@ public class MemberJpaRepository {
     }
 
     public List<Member> searchMember(MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds) || noSuchUsername(condition.getUsername())) {
+            return Collections.emptyList();
+        }
+
         return queryFactory
             .selectFrom(member)
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                teamIdIn(teamIds),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
             )
+            .setHint(HINT_READONLY, true)
+            .fetch();
+    }
+
+    /**
+     * Writes updates still waiting in the write-behind buffer for these members, so the query that follows
+     * reads them from the database.
+     *
+     * @return the ids that had updates pending
+     */
+    private Set<Long> writePending(Collection<Long> ids) {
+        Set<Long> pending = ids.stream().filter(writeBehindBuffer::isPending).collect(Collectors.toSet());
+        if (!pending.isEmpty()) {
+            writeBehindBuffer.flush(pending);
+        }
+        return pending;
+    }
+
+    /**
+     * A member the persistence context already held is not reloaded by a query, so it is refreshed to pick up
+     * written updates, unless the context has unflushed changes a refresh would throw away.
+     */
+    private void refreshIfClean(Member found) {
+        if (!em.unwrap(Session.class).isDirty()) {
+            em.refresh(found);
+        }
+    }
+
+    private long walkChunks(MemberSearchCondition condition, int chunkSize, boolean detach,
+                            Consumer<List<Member>> handler) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds) || noSuchUsername(condition.getUsername())) {
+            return 0;
+        }
+
+        long processed = 0;
+        Long lastId = null;
+        while (true) {
+            List<Member> chunk = chunkAfter(condition, teamIds, lastId, chunkSize);
+            if (chunk.isEmpty()) {
+                return processed;
+            }
+
+            lastId = chunk.get(chunk.size() - 1).getId();
+            processed += chunk.size();
+            if (detach) {
+                em.clear();
+            }
+            handler.accept(chunk);
+            if (chunk.size() < chunkSize) {
+                return processed;
+            }
+        }
+    }
+
+    private List<Member> chunkAfter(MemberSearchCondition condition, List<Long> teamIds, Long lastId,
+                                    int chunkSize) {
+        return queryFactory
+            .selectFrom(member)
+            .leftJoin(member.team, team).fetchJoin()
+            .where(
+                idGt(lastId),
+                usernameEq(condition.getUsername()),
+                teamIdIn(teamIds),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()))
+            .orderBy(member.id.asc())
+            .limit(chunkSize)
             .fetch();
     }
 
+    static List<Long> padToPowerOfTwo(List<Long> ids) {
+        int padded = Integer.highestOneBit(Math.max(1, ids.size()) * 2 - 1);
+        List<Long> result = new ArrayList<>(padded);
+        result.addAll(ids);
+        while (result.size() < padded) {
+            result.add(ids.get(ids.size() - 1));
+        }
+        return result;
+    }
+
+    private BooleanExpression idGt(Long id) {
+        return id != null ? member.id.gt(id) : null;
+    }
+
     private BooleanExpression usernameEq(String username) {
         return StringUtils.hasText(username) ? member.username.eq(username) : null;
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    private List<Long> teamIds(String teamName) {
+        return StringUtils.hasText(teamName) ? teamNameCache.idsOf(teamName) : null;
+    }
+
+    private static boolean noSuchTeam(List<Long> teamIds) {
+        return teamIds != null && teamIds.isEmpty();
+    }
+
+    private boolean noSuchUsername(String username) {
+        return StringUtils.hasText(username) && !usernameFilter.mightExist(username, em);
+    }
+
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return teamIds != null ? member.team.id.in(teamIds) : null;
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
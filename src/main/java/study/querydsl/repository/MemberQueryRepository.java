@@ -3,26 +3,45 @@ package study.querydsl.repository;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.controller.dto.MemberSearchCondition;
 import study.querydsl.controller.dto.MemberTeamDto;
 import study.querydsl.controller.dto.QMemberTeamDto;
 
+import javax.persistence.EntityManager;
+import java.util.Collections;
 import java.util.List;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberQueryRepository {
 
     private final JPAQueryFactory queryFactory;
 
-    public MemberQueryRepository(JPAQueryFactory queryFactory) {
+    private final EntityManager em;
+
+    private final TeamNameCache teamNameCache;
+
+    private final UsernameFilter usernameFilter;
+
+    public MemberQueryRepository(JPAQueryFactory queryFactory, EntityManager em, TeamNameCache teamNameCache,
+                                 UsernameFilter usernameFilter) {
         this.queryFactory = queryFactory;
+        this.em = em;
+        this.teamNameCache = teamNameCache;
+        this.usernameFilter = usernameFilter;
     }
 
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds) || noSuchUsername(condition.getUsername())) {
+            return Collections.emptyList();
+        }
+
         return queryFactory
             .select(new QMemberTeamDto(
                 member.id.as("memberId"),
@@ -35,14 +54,26 @@ public class MemberQueryRepository {
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                teamIdIn(teamIds),
                 ageLoe(condition.getAgeLoe()),
                 ageGoe(condition.getAgeGoe()))
             .fetch();
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    private List<Long> teamIds(String teamName) {
+        return StringUtils.hasText(teamName) ? teamNameCache.idsOf(teamName) : null;
+    }
+
+    private static boolean noSuchTeam(List<Long> teamIds) {
+        return teamIds != null && teamIds.isEmpty();
+    }
+
+    private boolean noSuchUsername(String username) {
+        return StringUtils.hasText(username) && !usernameFilter.mightExist(username, em);
+    }
+
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return teamIds != null ? member.team.id.in(teamIds) : null;
     }
 
     private BooleanExpression usernameEq(String username) {
@@ -9,26 +9,48 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.controller.dto.MemberSearchCondition;
 import study.querydsl.controller.dto.MemberTeamDto;
 import study.querydsl.controller.dto.QMemberTeamDto;
 
+import javax.persistence.EntityManager;
+import java.util.Collections;
 import java.util.List;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     private final JPAQueryFactory queryFactory;
 
-    public MemberRepositoryImpl(JPAQueryFactory queryFactory) {
+    private final EntityManager em;
+
+    private final TeamNameCache teamNameCache;
+
+    private final PagePrefetcher pagePrefetcher;
+
+    private final UsernameFilter usernameFilter;
+
+    public MemberRepositoryImpl(JPAQueryFactory queryFactory, EntityManager em, TeamNameCache teamNameCache,
+                                PagePrefetcher pagePrefetcher, UsernameFilter usernameFilter) {
         this.queryFactory = queryFactory;
+        this.em = em;
+        this.teamNameCache = teamNameCache;
+        this.pagePrefetcher = pagePrefetcher;
+        this.usernameFilter = usernameFilter;
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds) || noSuchUsername(condition.getUsername())) {
+            return Collections.emptyList();
+        }
+
         return queryFactory
             .select(new QMemberTeamDto(
                 member.id.as("memberId"),
@@ -41,7 +63,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                teamIdIn(teamIds),
                 ageLoe(condition.getAgeLoe()),
                 ageGoe(condition.getAgeGoe()))
             .fetch();
@@ -49,6 +71,20 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return pagePrefetcher.fetch("simple", condition, pageable, this::pageSimple);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return pagePrefetcher.fetch("complex", condition, pageable, this::pageComplex);
+    }
+
+    private Page<MemberTeamDto> pageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds) || noSuchUsername(condition.getUsername())) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
         QueryResults<MemberTeamDto> results = queryFactory
             .select(new QMemberTeamDto(
                 member.id.as("memberId"),
@@ -61,7 +97,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                teamIdIn(teamIds),
                 ageLoe(condition.getAgeLoe()),
                 ageGoe(condition.getAgeGoe()))
             .offset(pageable.getOffset())
@@ -74,8 +110,12 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return new PageImpl<>(content, pageable, total);
     }
 
-    @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    private Page<MemberTeamDto> pageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds) || noSuchUsername(condition.getUsername())) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
         List<MemberTeamDto> content = queryFactory
             .select(new QMemberTeamDto(
                 member.id.as("memberId"),
@@ -88,7 +128,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                teamIdIn(teamIds),
                 ageLoe(condition.getAgeLoe()),
                 ageGoe(condition.getAgeGoe()))
             .offset(pageable.getOffset())
@@ -101,15 +141,27 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                teamIdIn(teamIds),
                 ageLoe(condition.getAgeLoe()),
                 ageGoe(condition.getAgeGoe()));
 
         return PageableExecutionUtils.getPage(content, pageable, () -> countQuery.fetchCount());
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    private List<Long> teamIds(String teamName) {
+        return StringUtils.hasText(teamName) ? teamNameCache.idsOf(teamName) : null;
+    }
+
+    private static boolean noSuchTeam(List<Long> teamIds) {
+        return teamIds != null && teamIds.isEmpty();
+    }
+
+    private boolean noSuchUsername(String username) {
+        return StringUtils.hasText(username) && !usernameFilter.mightExist(username, em);
+    }
+
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return teamIds != null ? member.team.id.in(teamIds) : null;
     }
 
     private BooleanExpression usernameEq(String username) {
@@ -0,0 +1,36 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import study.querydsl.repository.shard.ShardedMemberRepository;
+import study.querydsl.repository.sql.SqlMemberRepository;
+
+/**
+ * Chooses the {@link MemberRepositoryCustom} implementation behind the search endpoints
+ * with {@code querydsl.search.backend}: {@code jpa} (default), {@code sql} or {@code sharded}.
+ */
+@Configuration
+public class MemberSearchConfig {
+
+    @Bean
+    @Primary
+    public MemberRepositoryCustom memberSearch(@Value("${querydsl.search.backend:jpa}") String backend,
+                                               MemberRepository memberRepository,
+                                               SqlMemberRepository sqlMemberRepository,
+                                               ObjectProvider<ShardedMemberRepository> shardedMemberRepository) {
+        switch (backend) {
+            case "jpa":
+                return memberRepository;
+            case "sql":
+                return sqlMemberRepository;
+            case "sharded":
+                return shardedMemberRepository.getObject();
+            default:
+                throw new IllegalArgumentException("Unknown querydsl.search.backend: " + backend);
+        }
+    }
+
+}
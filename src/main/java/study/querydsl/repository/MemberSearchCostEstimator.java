@@ -0,0 +1,120 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.controller.dto.MemberSearchCondition;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Estimates how many rows a member search returns, from which conditions are set and a few table
+ * statistics: the member and team counts and the member age range, reloaded every {@code statistics-ttl}.
+ * <p>
+ * Usernames are taken as nearly unique, members as evenly spread over teams and ages as uniform between the
+ * smallest and largest; a team name that resolves to no team estimates zero rows. The result is only meant
+ * to tell a handful of rows from the whole table, not to be exact.
+ */
+@Component
+public class MemberSearchCostEstimator {
+
+    private static final String STATISTICS = "select count(*), min(age), max(age), (select count(*) from team) from member";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TeamNameCache teamNameCache;
+
+    private final long ttlMillis;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile TableStatistics statistics;
+
+    public MemberSearchCostEstimator(JdbcTemplate jdbcTemplate, TeamNameCache teamNameCache,
+                                     @Value("${querydsl.admission.statistics-ttl:10000}") long ttlMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.teamNameCache = teamNameCache;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public long estimateRows(MemberSearchCondition condition) {
+        TableStatistics table = statistics();
+        double rows = table.members;
+        if (StringUtils.hasText(condition.getUsername())) {
+            rows = Math.min(rows, 1);
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            rows *= (double) teamNameCache.idsOf(condition.getTeamName()).size() / Math.max(1, table.teams);
+        }
+        if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+            rows *= table.ageSelectivity(condition.getAgeGoe(), condition.getAgeLoe());
+        }
+        return (long) Math.ceil(rows);
+    }
+
+    /**
+     * Stale statistics are reloaded by one caller while the others keep using the previous ones. Before the
+     * first load there are none to use, so callers wait for the one loading them.
+     */
+    private TableStatistics statistics() {
+        TableStatistics current = statistics;
+        if (current == null) {
+            return firstStatistics();
+        }
+        if (current.loadedAt + ttlMillis > System.currentTimeMillis()) {
+            return current;
+        }
+        if (refreshing.compareAndSet(false, true)) {
+            try {
+                current = load();
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        return current;
+    }
+
+    private synchronized TableStatistics firstStatistics() {
+        TableStatistics current = statistics;
+        return current != null ? current : load();
+    }
+
+    private TableStatistics load() {
+        TableStatistics loaded = jdbcTemplate.queryForObject(STATISTICS, (rs, rowNum) -> new TableStatistics(
+            rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getLong(4), System.currentTimeMillis()));
+        statistics = loaded;
+        return loaded;
+    }
+
+    private static final class TableStatistics {
+
+        private final long members;
+
+        private final int minAge;
+
+        private final int maxAge;
+
+        private final long teams;
+
+        private final long loadedAt;
+
+        TableStatistics(long members, int minAge, int maxAge, long teams, long loadedAt) {
+            this.members = members;
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+            this.teams = teams;
+            this.loadedAt = loadedAt;
+        }
+
+        double ageSelectivity(Integer ageGoe, Integer ageLoe) {
+            int from = ageGoe == null ? minAge : Math.max(minAge, ageGoe);
+            int to = ageLoe == null ? maxAge : Math.min(maxAge, ageLoe);
+            if (from > to) {
+                return 0;
+            }
+            return (double) (to - from + 1) / (maxAge - minAge + 1);
+        }
+    }
+
+}
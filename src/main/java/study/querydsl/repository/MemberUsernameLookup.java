@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+import study.querydsl.entity.Member;
+
+import java.util.List;
+
+/**
+ * Exact username lookup of {@link MemberRepository}, implemented by hand rather than derived, so names
+ * {@link UsernameFilter} knows to be absent return without a query.
+ */
+public interface MemberUsernameLookup {
+
+    List<Member> findByUsername(String username);
+
+}
@@ -0,0 +1,44 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+import static study.querydsl.entity.QMember.member;
+
+@Transactional(readOnly = true)
+public class MemberUsernameLookupImpl implements MemberUsernameLookup {
+
+    private final JPAQueryFactory queryFactory;
+
+    private final EntityManager em;
+
+    private final UsernameFilter usernameFilter;
+
+    public MemberUsernameLookupImpl(JPAQueryFactory queryFactory, EntityManager em, UsernameFilter usernameFilter) {
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.usernameFilter = usernameFilter;
+    }
+
+    @Override
+    public List<Member> findByUsername(String username) {
+        if (!usernameFilter.mightExist(username, em)) {
+            return Collections.emptyList();
+        }
+
+        List<Member> result = queryFactory
+            .selectFrom(member)
+            .where(member.username.eq(username))
+            .setHint(HINT_READONLY, true)
+            .fetch();
+        usernameFilter.lookedUp(!result.isEmpty());
+        return result;
+    }
+
+}
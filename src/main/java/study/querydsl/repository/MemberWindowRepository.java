@@ -0,0 +1,83 @@
+package study.querydsl.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.controller.dto.MemberAgeRankDto;
+import study.querydsl.controller.dto.MemberTeamDto;
+
+import java.util.List;
+
+/**
+ * Member queries that compare a row with an aggregate over its team.
+ * <p>
+ * Each one is a single pass over {@code member} with a window function, instead of a correlated subquery
+ * evaluated per row. The SQL is native, so it sees only what the persistence context has already flushed.
+ * Members without a team are not part of any team and are left out.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberWindowRepository {
+
+    private static final String ABOVE_TEAM_AVERAGE_AGE = "select m.member_id, m.username, m.age, t.team_id, t.name as team_name"
+        + " from (select member_id, username, age, team_id,"
+        + "       avg(cast(age as double)) over (partition by team_id) as team_avg_age"
+        + "       from member where team_id is not null) m"
+        + " join team t on t.team_id = m.team_id"
+        + " where m.age > m.team_avg_age"
+        + " order by t.team_id, m.age desc, m.member_id";
+
+    private static final String OLDEST_PER_TEAM = "select m.member_id, m.username, m.age, t.team_id, t.name as team_name"
+        + " from (select member_id, username, age, team_id,"
+        + "       rank() over (partition by team_id order by age desc) as age_rank"
+        + "       from member where team_id is not null) m"
+        + " join team t on t.team_id = m.team_id"
+        + " where m.age_rank = 1"
+        + " order by t.team_id, m.member_id";
+
+    private static final String AGE_RANK_IN_TEAM = "select m.member_id, m.username, m.age, t.team_id, t.name as team_name,"
+        + " rank() over (partition by m.team_id order by m.age desc) as age_rank"
+        + " from member m join team t on t.team_id = m.team_id"
+        + " order by t.team_id, age_rank, m.member_id";
+
+    private static final RowMapper<MemberTeamDto> MEMBER_TEAM = (rs, rowNum) -> new MemberTeamDto(
+        rs.getLong("member_id"),
+        rs.getString("username"),
+        rs.getInt("age"),
+        rs.getLong("team_id"),
+        rs.getString("team_name"));
+
+    private static final RowMapper<MemberAgeRankDto> MEMBER_AGE_RANK = (rs, rowNum) -> new MemberAgeRankDto(
+        rs.getLong("member_id"),
+        rs.getString("username"),
+        rs.getInt("age"),
+        rs.getLong("team_id"),
+        rs.getString("team_name"),
+        rs.getLong("age_rank"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MemberWindowRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<MemberTeamDto> findAboveTeamAverageAge() {
+        return jdbcTemplate.query(ABOVE_TEAM_AVERAGE_AGE, MEMBER_TEAM);
+    }
+
+    /**
+     * @return the oldest members of every team, all of them when several share the maximum age
+     */
+    public List<MemberTeamDto> findOldestPerTeam() {
+        return jdbcTemplate.query(OLDEST_PER_TEAM, MEMBER_TEAM);
+    }
+
+    /**
+     * @return every member with a team and its {@code rank()} by age within the team, oldest first
+     */
+    public List<MemberAgeRankDto> findAgeRankInTeam() {
+        return jdbcTemplate.query(AGE_RANK_IN_TEAM, MEMBER_AGE_RANK);
+    }
+
+}
@@ -0,0 +1,256 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers high-frequency single-row member updates and writes them behind in batches.
+ * <p>
+ * Updates are merged per member in a striped map, so a burst of increments to one row becomes a single
+ * {@code UPDATE}. The buffer is flushed when {@code max-pending} rows are waiting, every
+ * {@code flush-interval}, and once more on shutdown. {@link MemberJpaRepository#findById} writes a member's
+ * pending changes before reading it, in the caller's transaction and on its connection, so callers read their
+ * own writes without taking a second connection. Rows being flushed count as pending until the transaction
+ * writing them has committed; when it rolls back they are buffered again.
+ */
+@Slf4j
+@Component
+public class MemberWriteBehindBuffer implements DisposableBean {
+
+    private static final String UPDATE_AGE = "update member set age = age + ? where member_id = ?";
+    private static final String UPDATE_USERNAME = "update member set username = ? where member_id = ?";
+
+    private final List<ConcurrentHashMap<Long, MemberDelta>> stripes;
+
+    private final Map<Long, MemberDelta> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger pendingRows = new AtomicInteger();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final InvalidationPublisher invalidations;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final int maxPending;
+
+    public MemberWriteBehindBuffer(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   InvalidationPublisher invalidations,
+                                   @Value("${querydsl.write-behind.max-pending:1000}") int maxPending,
+                                   @Value("${querydsl.write-behind.flush-interval:1000}") long flushIntervalMillis,
+                                   @Value("${querydsl.write-behind.stripes:16}") int stripeCount) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invalidations = invalidations;
+        this.maxPending = maxPending;
+
+        int stripeTotal = Integer.highestOneBit(Math.max(1, stripeCount) * 2 - 1);
+        this.stripes = new ArrayList<>(stripeTotal);
+        for (int i = 0; i < stripeTotal; i++) {
+            stripes.add(new ConcurrentHashMap<>());
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "member-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void addAge(Long memberId, int delta) {
+        buffer(memberId, MemberDelta.age(delta));
+    }
+
+    public void changeUsername(Long memberId, String username) {
+        buffer(memberId, MemberDelta.username(username));
+    }
+
+    public int pendingRows() {
+        return pendingRows.get();
+    }
+
+    /**
+     * Writes every buffered change, in the current transaction or, without one, in a transaction of its own.
+     *
+     * @return the number of member rows written
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            return write(drain(null));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the buffered changes of {@code memberIds} now, in the current transaction, so a read that follows
+     * on the same connection finds them. Does not wait for {@link #flush()}: the caller may hold row locks a
+     * running flush is waiting for.
+     *
+     * @return the number of member rows written
+     */
+    public int flush(Collection<Long> memberIds) {
+        return write(drain(memberIds));
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int flushed = flush();
+        log.info("Flushed {} buffered member updates on shutdown", flushed);
+    }
+
+    boolean isPending(Long memberId) {
+        return memberId != null && (inFlight.containsKey(memberId) || stripe(memberId).containsKey(memberId));
+    }
+
+    private void buffer(Long memberId, MemberDelta delta) {
+        if (memberId == null) {
+            throw new IllegalArgumentException("Only members with an id can be updated behind");
+        }
+        boolean[] added = new boolean[1];
+        stripe(memberId).compute(memberId, (id, current) -> {
+            added[0] = current == null;
+            return current == null ? delta : current.merge(delta);
+        });
+
+        if (added[0] && pendingRows.incrementAndGet() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushScheduled.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    private void requeue(Long memberId, MemberDelta delta) {
+        // the failed batch is older than anything buffered since, so it goes first
+        stripe(memberId).compute(memberId, (id, current) -> {
+            if (current == null) {
+                pendingRows.incrementAndGet();
+                return delta;
+            }
+            return delta.merge(current);
+        });
+    }
+
+    /**
+     * @param memberIds the members to drain, or {@code null} for all
+     */
+    private Map<Long, MemberDelta> drain(Collection<Long> memberIds) {
+        Map<Long, MemberDelta> batch = new HashMap<>();
+        if (memberIds == null) {
+            stripes.forEach(stripe -> stripe.keySet().forEach(memberId -> drain(stripe, memberId, batch)));
+        } else {
+            memberIds.stream().filter(Objects::nonNull).forEach(memberId -> drain(stripe(memberId), memberId, batch));
+        }
+        return batch;
+    }
+
+    private void drain(ConcurrentHashMap<Long, MemberDelta> stripe, Long memberId, Map<Long, MemberDelta> batch) {
+        // hands over the latest merged delta atomically and publishes it as in flight before it
+        // disappears from the stripe; later updates start a new entry
+        stripe.computeIfPresent(memberId, (id, delta) -> {
+            pendingRows.decrementAndGet();
+            batch.put(id, delta);
+            inFlight.put(id, delta);
+            return null;
+        });
+    }
+
+    private int write(Map<Long, MemberDelta> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // the rows stay pending until they are visible in the database, so readers never skip a write
+            // that has not committed yet; registered first, so a failed write is requeued as well
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        // requeued before they stop being in flight, so they never look written in between
+                        batch.forEach(MemberWriteBehindBuffer.this::requeue);
+                    }
+                    batch.keySet().forEach(inFlight::remove);
+                }
+            });
+            writeRows(batch);
+        });
+        return batch.size();
+    }
+
+    private void writeRows(Map<Long, MemberDelta> batch) {
+        List<Object[]> ageUpdates = new ArrayList<>();
+        List<Object[]> usernameUpdates = new ArrayList<>();
+        batch.forEach((memberId, delta) -> {
+            invalidations.changed(Member.class, memberId);
+            if (delta.getAgeDelta() != 0) {
+                ageUpdates.add(new Object[]{delta.getAgeDelta(), memberId});
+            }
+            if (delta.getUsername() != null) {
+                usernameUpdates.add(new Object[]{delta.getUsername(), memberId});
+            }
+        });
+
+        if (!ageUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_AGE, ageUpdates);
+        }
+        if (!usernameUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_USERNAME, usernameUpdates);
+        }
+    }
+
+    private void flushQuietly() {
+        if (flushLock.isLocked()) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Write-behind flush failed, {} member rows stay buffered", pendingRows.get(), e);
+        }
+    }
+
+    private ConcurrentHashMap<Long, MemberDelta> stripe(Long memberId) {
+        int hash = memberId.hashCode();
+        return stripes.get((hash ^ (hash >>> 16)) & (stripes.size() - 1));
+    }
+
+}
@@ -0,0 +1,353 @@
+package study.querydsl.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.invalidation.InvalidationBatch;
+import study.querydsl.repository.invalidation.InvalidationListener;
+import study.querydsl.repository.support.QueryDeadline;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Speculatively loads page N+1 of a paged member search right after page N was served, on a small
+ * background pool, and keeps it for a short TTL.
+ * <p>
+ * Prefetching only ever uses spare capacity. It is skipped, and queued or running prefetches are
+ * cancelled, as soon as foreground searches in flight or the connection pool cross their thresholds;
+ * the same check runs again when a queued prefetch starts. Each prefetch runs under its own
+ * {@link QueryDeadline}. Any committed member or team change, on this instance or a peer, drops everything
+ * prefetched so far. Prefetched pages only hold committed data, so a search inside a transaction that may
+ * have written is always loaded in that transaction and schedules nothing.
+ * <p>
+ * Outcomes are counted in {@value #METRIC} by {@code event}: {@code hit}, {@code miss}, {@code bypassed},
+ * {@code scheduled}, {@code shed}, {@code rejected}, {@code cancelled}, {@code failed} and {@code invalidated}.
+ * Disabled unless {@code querydsl.prefetch.enabled} is set.
+ */
+@Slf4j
+@Component
+public class PagePrefetcher implements DisposableBean, InvalidationListener {
+
+    static final String METRIC = "querydsl.prefetch";
+
+    private final Map<PageKey, Entry> cache = new ConcurrentHashMap<>();
+
+    private final AtomicInteger foregroundInFlight = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DataSource dataSource;
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+
+    private final long ttlMillis;
+
+    private final long budgetMillis;
+
+    private final int maxEntries;
+
+    private final int maxForegroundInFlight;
+
+    private final double maxPoolUsage;
+
+    private volatile HikariPoolMXBean pool;
+
+    public PagePrefetcher(PlatformTransactionManager transactionManager,
+                          DataSource dataSource,
+                          MeterRegistry meterRegistry,
+                          @Value("${querydsl.prefetch.enabled:false}") boolean enabled,
+                          @Value("${querydsl.prefetch.threads:2}") int threads,
+                          @Value("${querydsl.prefetch.queue-capacity:16}") int queueCapacity,
+                          @Value("${querydsl.prefetch.ttl:5000}") long ttlMillis,
+                          @Value("${querydsl.prefetch.budget:1000}") long budgetMillis,
+                          @Value("${querydsl.prefetch.max-entries:1000}") int maxEntries,
+                          @Value("${querydsl.prefetch.max-foreground-in-flight:8}") int maxForegroundInFlight,
+                          @Value("${querydsl.prefetch.max-pool-usage:0.5}") double maxPoolUsage) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.budgetMillis = budgetMillis;
+        this.maxEntries = maxEntries;
+        this.maxForegroundInFlight = maxForegroundInFlight;
+        this.maxPoolUsage = maxPoolUsage;
+
+        // full queue means the pool is behind already, so new prefetches are simply dropped
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "member-page-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Serves the page from the prefetch cache when possible, otherwise loads it with {@code loader}; then
+     * schedules the next page. The loader gets a copy of the condition, so it may run on another thread.
+     */
+    public Page<MemberTeamDto> fetch(String search, MemberSearchCondition condition, Pageable pageable,
+                                     BiFunction<MemberSearchCondition, Pageable, Page<MemberTeamDto>> loader) {
+        if (!enabled) {
+            return loader.apply(condition, pageable);
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // the caller may have flushed changes of its own that no prefetched page contains
+            count("bypassed");
+            return loader.apply(condition, pageable);
+        }
+
+        PageKey key = new PageKey(search, condition, pageable);
+        Page<MemberTeamDto> page = take(key);
+        if (page != null) {
+            count("hit");
+        } else {
+            count("miss");
+            foregroundInFlight.incrementAndGet();
+            try {
+                page = loader.apply(condition, pageable);
+            } finally {
+                foregroundInFlight.decrementAndGet();
+            }
+        }
+
+        if (page.hasNext()) {
+            schedule(key.next(), pageable.next(), loader);
+        }
+        return page;
+    }
+
+    @Override
+    public void invalidated(InvalidationBatch batch) {
+        // a page may gain or lose any member, so there is no telling which pages an id affects
+        if (enabled && (batch.touches(Member.class) || batch.touches(Team.class)) && !cache.isEmpty()) {
+            clear();
+            count("invalidated");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    void clear() {
+        cancelAll();
+        cache.clear();
+    }
+
+    int ready() {
+        return (int) cache.values().stream().filter(entry -> entry.task.isDone()).count();
+    }
+
+    private Page<MemberTeamDto> take(PageKey key) {
+        Entry entry = cache.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.task.isDone() || entry.expiresAt < System.currentTimeMillis()) {
+            // the foreground query wins; a prefetch still running would only duplicate it
+            entry.task.cancel(true);
+            return null;
+        }
+        try {
+            return entry.task.isCancelled() ? null : entry.task.get();
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void schedule(PageKey key, Pageable pageable,
+                          BiFunction<MemberSearchCondition, Pageable, Page<MemberTeamDto>> loader) {
+        if (overloaded()) {
+            count("shed");
+            cancelAll();
+            return;
+        }
+        evictExpired();
+        if (cache.size() >= maxEntries || cache.containsKey(key)) {
+            return;
+        }
+
+        MemberSearchCondition condition = key.condition();
+        FutureTask<Page<MemberTeamDto>> task = new FutureTask<>(() -> {
+            // admission is checked again: load may have risen while the task was queued
+            if (overloaded()) {
+                count("shed");
+                throw new IllegalStateException("shed under load");
+            }
+            QueryDeadline.start(budgetMillis);
+            try {
+                return transactionTemplate.execute(status -> loader.apply(condition, pageable));
+            } catch (RuntimeException e) {
+                count("failed");
+                log.debug("Page prefetch {} failed", key, e);
+                throw e;
+            } finally {
+                QueryDeadline.clear();
+            }
+        });
+
+        Entry entry = new Entry(task, System.currentTimeMillis() + ttlMillis);
+        if (cache.putIfAbsent(key, entry) != null) {
+            return;
+        }
+        try {
+            executor.execute(task);
+            count("scheduled");
+        } catch (RejectedExecutionException e) {
+            cache.remove(key, entry);
+            count("rejected");
+        }
+    }
+
+    private boolean overloaded() {
+        if (foregroundInFlight.get() > maxForegroundInFlight) {
+            return true;
+        }
+        HikariPoolMXBean poolBean = pool();
+        if (poolBean == null) {
+            return false;
+        }
+        return poolBean.getThreadsAwaitingConnection() > 0
+            || poolBean.getActiveConnections() >= Math.max(1, maxPoolUsage * poolBean.getTotalConnections());
+    }
+
+    private void cancelAll() {
+        executor.getQueue().clear();
+        for (Iterator<Entry> it = cache.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (!entry.task.isDone()) {
+                entry.task.cancel(true);
+                it.remove();
+                count("cancelled");
+            }
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(entry -> entry.expiresAt < now && entry.task.isDone());
+    }
+
+    private HikariPoolMXBean pool() {
+        if (pool == null) {
+            try {
+                if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                    // null until the pool has been started by the first connection
+                    pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+                }
+            } catch (SQLException e) {
+                return null;
+            }
+        }
+        return pool;
+    }
+
+    private void count(String event) {
+        meterRegistry.counter(METRIC, "event", event).increment();
+    }
+
+    private static class Entry {
+
+        private final FutureTask<Page<MemberTeamDto>> task;
+
+        private final long expiresAt;
+
+        Entry(FutureTask<Page<MemberTeamDto>> task, long expiresAt) {
+            this.task = task;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @EqualsAndHashCode
+    static final class PageKey {
+
+        private final String search;
+
+        private final String username;
+
+        private final String teamName;
+
+        private final Integer ageGoe;
+
+        private final Integer ageLoe;
+
+        private final int page;
+
+        private final int size;
+
+        private final Sort sort;
+
+        PageKey(String search, MemberSearchCondition condition, Pageable pageable) {
+            this(search, condition.getUsername(), condition.getTeamName(), condition.getAgeGoe(), condition.getAgeLoe(),
+                pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
+        }
+
+        private PageKey(String search, String username, String teamName, Integer ageGoe, Integer ageLoe,
+                        int page, int size, Sort sort) {
+            this.search = search;
+            this.username = username;
+            this.teamName = teamName;
+            this.ageGoe = ageGoe;
+            this.ageLoe = ageLoe;
+            this.page = page;
+            this.size = size;
+            this.sort = sort;
+        }
+
+        PageKey next() {
+            return new PageKey(search, username, teamName, ageGoe, ageLoe, page + 1, size, sort);
+        }
+
+        MemberSearchCondition condition() {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername(username);
+            condition.setTeamName(teamName);
+            condition.setAgeGoe(ageGoe);
+            condition.setAgeLoe(ageLoe);
+            return condition;
+        }
+
+        @Override
+        public String toString() {
+            return search + condition() + " page " + page + "/" + size;
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds and fixes drift between {@code team.member_count} and the actual number of members, left by writes
+ * that {@link MemberCountMaintainer} does not see.
+ * <p>
+ * Teams are walked in id order, {@code chunk-size} at a time, each chunk recounted by one statement in its own
+ * transaction that only touches teams whose count is off. A member written concurrently with its team's chunk
+ * can still leave that team off by one until the next run. Runs every {@code reconcile-interval} when positive.
+ */
+@Slf4j
+@Component
+public class TeamMemberCountReconciler implements DisposableBean {
+
+    private static final String NEXT_CHUNK = "select team_id from team where team_id > ? order by team_id limit ?";
+
+    private static final String RECONCILE = "update team t"
+        + " set member_count = (select count(*) from member m where m.team_id = t.team_id)"
+        + " where t.team_id between ? and ?"
+        + " and member_count <> (select count(*) from member m where m.team_id = t.team_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final InvalidationPublisher invalidations;
+
+    private final int chunkSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    public TeamMemberCountReconciler(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     InvalidationPublisher invalidations,
+                                     @Value("${querydsl.team-count.chunk-size:500}") int chunkSize,
+                                     @Value("${querydsl.team-count.reconcile-interval:3600000}") long intervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.invalidations = invalidations;
+        this.chunkSize = chunkSize;
+
+        if (intervalMillis > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "team-count-reconciler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.scheduleWithFixedDelay(this::reconcileQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @return the number of teams whose count was corrected
+     */
+    public int reconcile() {
+        int fixed = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(NEXT_CHUNK, Long.class, lastId, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            long from = ids.get(0);
+            long to = ids.get(ids.size() - 1);
+            fixed += transactionTemplate.execute(status -> {
+                int updated = jdbcTemplate.update(RECONCILE, from, to);
+                if (updated > 0) {
+                    invalidations.bump(MemberCountMaintainer.MEMBER_COUNT);
+                }
+                return updated;
+            });
+            lastId = to;
+        }
+        if (fixed > 0) {
+            log.info("Corrected member count of {} teams", fixed);
+        }
+        return fixed;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Team member count reconciliation failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.invalidation.InvalidationBatch;
+import study.querydsl.repository.invalidation.InvalidationListener;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+import javax.persistence.PreUpdate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * Resolves team names to team ids, so a team name filter can compare the indexed {@code member.team_id}
+ * instead of joining {@code team}. Unknown names are cached as well and resolve to an empty list.
+ * <p>
+ * Names are loaded in the caller's transaction, on its connection. A transaction that has changed a team, through
+ * the session or past it with the change recorded in {@link InvalidationPublisher}, may see uncommitted teams,
+ * so it resolves names with an uncached query; any other read committed transaction only sees committed teams,
+ * which are the only ones ever cached. Every team insert, update or delete clears the cache through {@link Invalidator}:
+ * once when the change is made and again when the writing transaction completes, dropping whatever other
+ * transactions cached in between; a load that overlapped an invalidation is dropped as well. JPQL bulk
+ * updates of {@code Team} bypass the listener and must call {@link #invalidate()} themselves. Team changes
+ * committed on other instances arrive as {@link InvalidationBatch}es.
+ */
+@Component
+public class TeamNameCache implements InvalidationListener {
+
+    private final Map<String, List<Long>> idsByName = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final JPAQueryFactory queryFactory;
+
+    private final InvalidationPublisher invalidations;
+
+    private final int maxSize;
+
+    public TeamNameCache(JPAQueryFactory queryFactory,
+                         InvalidationPublisher invalidations,
+                         @Value("${querydsl.team-name-cache.max-size:10000}") int maxSize) {
+        this.queryFactory = queryFactory;
+        this.invalidations = invalidations;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the ids of all teams with this name, empty when there is none
+     */
+    public List<Long> idsOf(String teamName) {
+        if (TransactionSynchronizationManager.hasResource(this) || invalidations.isPending(Team.class)) {
+            return load(teamName);
+        }
+        List<Long> cached = idsByName.get(teamName);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedAt = generation.get();
+        List<Long> ids = load(teamName);
+
+        // names are caller supplied, so keep the map bounded instead of caching every name ever asked for
+        if (generation.get() == loadedAt && idsByName.size() < maxSize) {
+            idsByName.putIfAbsent(teamName, ids);
+            if (generation.get() != loadedAt) {
+                // invalidated between the check and the put: the loaded ids may miss that write
+                idsByName.remove(teamName, ids);
+            }
+        }
+        return ids;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        idsByName.clear();
+    }
+
+    private List<Long> load(String teamName) {
+        return Collections.unmodifiableList(queryFactory
+            .select(team.id)
+            .from(team)
+            .where(team.name.eq(teamName))
+            .orderBy(team.id.asc())
+            .fetch());
+    }
+
+    @Override
+    public void invalidated(InvalidationBatch batch) {
+        if (batch.touches(Team.class)) {
+            invalidate();
+        }
+    }
+
+    /**
+     * JPA entity listener on {@link study.querydsl.entity.Team}, created through Spring's bean container while
+     * the entity manager factory is still being built, hence the provider.
+     */
+    @Component
+    public static class Invalidator {
+
+        private final ObjectProvider<TeamNameCache> cache;
+
+        public Invalidator(ObjectProvider<TeamNameCache> cache) {
+            this.cache = cache;
+        }
+
+        @PrePersist
+        @PreUpdate
+        @PreRemove
+        public void teamChanged(Object team) {
+            TeamNameCache teamNameCache = cache.getObject();
+            teamNameCache.invalidate();
+            if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(teamNameCache)) {
+                // marks the transaction as having changed teams until it completes
+                TransactionSynchronizationManager.bindResource(teamNameCache, Boolean.TRUE);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(teamNameCache);
+                        teamNameCache.invalidate();
+                    }
+                });
+            }
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.controller.dto.TeamDto;
+import study.querydsl.entity.Team;
+
+import java.util.Collection;
+
+public interface TeamRepository extends JpaRepository<Team, Long> {
+
+    /**
+     * Pages teams with their stored member count; sorting by {@code memberCount} reads the indexed column
+     * instead of counting members.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select new study.querydsl.controller.dto.TeamDto(t.id, t.name, t.memberCount) from Team t",
+        countQuery = "select count(t) from Team t")
+    Page<TeamDto> findTeams(Pageable pageable);
+
+    /**
+     * Recounts the given teams from {@code member}; for callers that changed members behind Hibernate's back,
+     * e.g. with a bulk update or delete.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update team t set member_count = (select count(*) from member m where m.team_id = t.team_id)"
+        + " where t.team_id in (:teamIds)", nativeQuery = true)
+    int recountMembers(@Param("teamIds") Collection<Long> teamIds);
+
+}
@@ -0,0 +1,305 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.invalidation.InvalidationBatch;
+import study.querydsl.repository.invalidation.InvalidationListener;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+import study.querydsl.repository.support.BloomFilter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filter over all member usernames, so exact username lookups for names that do not exist return
+ * without a query.
+ * <p>
+ * The filter is built once the application is ready, by streaming {@code member.username} into a filter sized
+ * for twice the current member count, and rebuilt every {@code rebuild-interval}, when it has filled up past
+ * twice its target false positive rate, or when a change batch is too large to list ids. Until the first build
+ * finishes every name passes. Usernames persisted or updated through JPA are added by {@link Recorder} when
+ * they are persisted or flushed, and lookups are let through while the caller's persistence context has
+ * unflushed changes or its transaction has changed members it has not published yet, like through a bulk update,
+ * so a transaction always finds its own members. Usernames of members changed by other writers, like the
+ * write-behind buffer or peers, are looked up by id once their commit arrives as an {@link InvalidationBatch};
+ * a bumped {@code Member}, as bulk HQL writes publish, lets every name through until the rebuild it triggers
+ * has finished. While a rebuild runs, names are added to both the old and the new filter. JDBC writes must
+ * record themselves with {@link InvalidationPublisher}; those that publish nothing stay invisible until the
+ * next rebuild. Deleted names are only dropped on rebuild; until then they merely cost a query, like any false
+ * positive.
+ * <p>
+ * Answers are counted in {@value #METRIC} by {@code result}: {@code skipped}, {@code found} and
+ * {@code false-positive}; {@value #METRIC}{@code .false-positive-rate} is the observed share of absent names that
+ * still went to the database and {@value #METRIC}{@code .expected-false-positive-rate} the rate expected from
+ * the filter's fill. Disabled unless {@code querydsl.username-filter.enabled} is set.
+ */
+@Slf4j
+@Component
+public class UsernameFilter implements InvalidationListener, ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    static final String METRIC = "querydsl.username-filter";
+
+    private static final String COUNT = "select count(*) from member";
+
+    private static final String USERNAMES = "select username from member";
+
+    private static final int LOOKUP_CHUNK = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final InvalidationPublisher invalidations;
+
+    private final boolean enabled;
+
+    private final double falsePositiveRate;
+
+    private final long minCapacity;
+
+    private final long rebuildIntervalMillis;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    private final AtomicLong bumps = new AtomicLong();
+
+    private volatile BloomFilter current;
+
+    private volatile BloomFilter next;
+
+    public UsernameFilter(DataSource dataSource,
+                          MeterRegistry meterRegistry,
+                          InvalidationPublisher invalidations,
+                          @Value("${querydsl.username-filter.enabled:false}") boolean enabled,
+                          @Value("${querydsl.username-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                          @Value("${querydsl.username-filter.min-capacity:10000}") long minCapacity,
+                          @Value("${querydsl.username-filter.rebuild-interval:3600000}") long rebuildIntervalMillis) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.meterRegistry = meterRegistry;
+        this.invalidations = invalidations;
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.minCapacity = minCapacity;
+        this.rebuildIntervalMillis = rebuildIntervalMillis;
+
+        if (enabled) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "username-filter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Gauge.builder(METRIC + ".false-positive-rate", this, UsernameFilter::observedFalsePositiveRate)
+                .register(meterRegistry);
+            Gauge.builder(METRIC + ".expected-false-positive-rate", this, filter -> {
+                BloomFilter bloomFilter = filter.current;
+                return bloomFilter == null ? Double.NaN : bloomFilter.expectedFalsePositiveRate();
+            }).register(meterRegistry);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @return {@code false} only when no member has this username, neither in the database nor among the
+     * unflushed changes of {@code em}
+     */
+    public boolean mightExist(String username, EntityManager em) {
+        BloomFilter filter = current;
+        if (!enabled || filter == null || username == null || filter.mightContain(username)) {
+            return true;
+        }
+        // a renamed member is only added when flushed; the query would auto-flush it first
+        if (em.unwrap(Session.class).isDirty()) {
+            return true;
+        }
+        // members changed past the session, like by a bulk update, are only added once the transaction commits
+        if (invalidations.isPending(Member.class)) {
+            return true;
+        }
+        count("skipped");
+        return false;
+    }
+
+    /**
+     * Reports the outcome of an exact lookup {@link #mightExist} let through, for the false positive metrics.
+     */
+    public void lookedUp(boolean found) {
+        if (enabled && current != null) {
+            count(found ? "found" : "false-positive");
+        }
+    }
+
+    public void add(String username) {
+        if (!enabled || username == null) {
+            return;
+        }
+        // next before current: a rebuild publishes the new filter as current before it clears next,
+        // so a name is never put only into the filter that is being replaced
+        BloomFilter building = next;
+        BloomFilter filter = current;
+        if (building != null) {
+            building.put(username);
+        }
+        if (filter != null) {
+            filter.put(username);
+            if (filter.expectedFalsePositiveRate() > falsePositiveRate * 2) {
+                requestRebuild();
+            }
+        }
+    }
+
+    /**
+     * Builds a new filter from all usernames and replaces the current one. Rebuilds run one at a time.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        long bumped = bumps.get();
+        Long members = jdbcTemplate.queryForObject(COUNT, Long.class);
+        BloomFilter filter = BloomFilter.create(Math.max(minCapacity, members * 2), falsePositiveRate);
+        next = filter;
+        try {
+            jdbcTemplate.query(USERNAMES, rs -> {
+                String username = rs.getString(1);
+                if (username != null) {
+                    filter.put(username);
+                }
+            });
+            current = filter;
+            // the scan may have missed a bulk write committed while it ran; its rebuild is already queued
+            if (bumps.get() != bumped) {
+                current = null;
+            }
+        } finally {
+            next = null;
+        }
+        log.info("Built username filter over {} members, {} bits, {} hashes in {} ms", members,
+            filter.getBitCount(), filter.getHashCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (enabled) {
+            requestRebuild();
+            if (rebuildIntervalMillis > 0) {
+                scheduler.scheduleWithFixedDelay(this::requestRebuild, rebuildIntervalMillis, rebuildIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void invalidated(InvalidationBatch batch) {
+        if (!enabled || !batch.touches(Member.class)) {
+            return;
+        }
+        if (batch.isBumped(Member.class.getSimpleName())) {
+            // any name may have changed, so none is ruled out until the filter is rebuilt
+            bumps.incrementAndGet();
+            current = null;
+            requestRebuild();
+            return;
+        }
+        long[] ids = batch.ids(Member.class.getSimpleName());
+        if (ids.length > 0) {
+            // runs after the commit on another thread, so neither the commit nor the peer's receiver waits for it
+            scheduler.execute(() -> addExisting(ids));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    boolean isBuilt() {
+        return current != null;
+    }
+
+    private void addExisting(long[] ids) {
+        try {
+            for (int from = 0; from < ids.length; from += LOOKUP_CHUNK) {
+                long[] chunk = Arrays.copyOfRange(ids, from, Math.min(from + LOOKUP_CHUNK, ids.length));
+                String sql = "select username from member where member_id in ("
+                    + String.join(", ", Collections.nCopies(chunk.length, "?")) + ")";
+                jdbcTemplate.query(sql, rs -> {
+                    add(rs.getString(1));
+                }, Arrays.stream(chunk).boxed().toArray());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Adding usernames of changed members failed, rebuilding the username filter", e);
+            requestRebuild();
+        }
+    }
+
+    private void requestRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                rebuildScheduled.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("Username filter rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    private double observedFalsePositiveRate() {
+        double falsePositives = counted("false-positive");
+        double absent = falsePositives + counted("skipped");
+        return absent == 0 ? 0 : falsePositives / absent;
+    }
+
+    private double counted(String result) {
+        return meterRegistry.counter(METRIC, "result", result).count();
+    }
+
+    private void count(String result) {
+        meterRegistry.counter(METRIC, "result", result).increment();
+    }
+
+    /**
+     * JPA entity listener on {@link Member}, created through Spring's bean container while the entity manager
+     * factory is still being built, hence the provider.
+     */
+    @Component
+    public static class Recorder {
+
+        private final ObjectProvider<UsernameFilter> filter;
+
+        public Recorder(ObjectProvider<UsernameFilter> filter) {
+            this.filter = filter;
+        }
+
+        @PrePersist
+        @PreUpdate
+        public void memberWritten(Object member) {
+            filter.getObject().add(((Member) member).getUsername());
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package study.querydsl.repository.adaptive;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.controller.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.TeamNameCache;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * Member search that picks its own {@link FetchStrategy} per {@link QueryShape} from the latency, row count
+ * and lazy-load count observed on earlier executions. All strategies return the same rows in member id order,
+ * so the choice is purely about cost; the {@link FetchDecision} returned with the result says why it was made.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class AdaptiveMemberSearch {
+
+    static final int LAZY_BATCH_SIZE = 100;
+
+    private final Map<QueryShape, ShapeStatistics> statistics = new ConcurrentHashMap<>();
+
+    private final JPAQueryFactory queryFactory;
+
+    private final PersistenceUnitUtil persistenceUnitUtil;
+
+    private final TeamNameCache teamNameCache;
+
+    private final int minSamples;
+
+    private final int recheckEvery;
+
+    public AdaptiveMemberSearch(JPAQueryFactory queryFactory,
+                                EntityManager em,
+                                TeamNameCache teamNameCache,
+                                @Value("${querydsl.adaptive-fetch.min-samples:3}") int minSamples,
+                                @Value("${querydsl.adaptive-fetch.recheck-every:50}") int recheckEvery) {
+        this.queryFactory = queryFactory;
+        this.persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        this.teamNameCache = teamNameCache;
+        this.minSamples = minSamples;
+        this.recheckEvery = recheckEvery;
+    }
+
+    public AdaptiveSearchResult search(MemberSearchCondition condition) {
+        QueryShape shape = QueryShape.of(condition);
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) {
+            FetchDecision decision = new FetchDecision(shape, FetchStrategy.DTO_PROJECTION, "unknown team name, no query");
+            return new AdaptiveSearchResult(Collections.emptyList(), decision);
+        }
+
+        ShapeStatistics shapeStatistics = statistics.computeIfAbsent(shape,
+            key -> new ShapeStatistics(key, minSamples, recheckEvery));
+        FetchDecision decision = shapeStatistics.decide();
+
+        long start = System.nanoTime();
+        int[] lazyLoads = new int[1];
+        List<MemberTeamDto> content = execute(decision.getStrategy(), condition, teamIds, lazyLoads);
+        shapeStatistics.record(decision.getStrategy(), System.nanoTime() - start, content.size(), lazyLoads[0]);
+
+        return new AdaptiveSearchResult(content, decision);
+    }
+
+    List<MemberTeamDto> execute(FetchStrategy strategy, MemberSearchCondition condition, List<Long> teamIds, int[] lazyLoads) {
+        switch (strategy) {
+            case FETCH_JOIN:
+                return toDtos(queryFactory
+                    .selectFrom(member)
+                    .leftJoin(member.team, team).fetchJoin()
+                    .where(conditions(condition, teamIds))
+                    .orderBy(member.id.asc())
+                    .setHint(HINT_READONLY, true)
+                    .fetch());
+            case BATCHED_LAZY:
+                List<Member> members = queryFactory
+                    .selectFrom(member)
+                    .where(conditions(condition, teamIds))
+                    .orderBy(member.id.asc())
+                    .setHint(HINT_READONLY, true)
+                    .fetch();
+                lazyLoads[0] = loadTeams(members);
+                return toDtos(members);
+            case DTO_PROJECTION:
+                return queryFactory
+                    .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name
+                    ))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(conditions(condition, teamIds))
+                    .orderBy(member.id.asc())
+                    .fetch();
+            default:
+                throw new IllegalArgumentException("Unknown fetch strategy: " + strategy);
+        }
+    }
+
+    /**
+     * Initializes the team proxies of the given members with one query per {@link #LAZY_BATCH_SIZE} ids.
+     *
+     * @return the number of queries issued
+     */
+    private int loadTeams(List<Member> members) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Member found : members) {
+            Team proxy = found.getTeam();
+            if (proxy != null && !Hibernate.isInitialized(proxy)) {
+                // reads the id from the proxy without initializing it
+                ids.add((Long) persistenceUnitUtil.getIdentifier(proxy));
+            }
+        }
+
+        List<Long> pending = new ArrayList<>(ids);
+        int queries = 0;
+        for (int from = 0; from < pending.size(); from += LAZY_BATCH_SIZE) {
+            List<Long> batch = pending.subList(from, Math.min(from + LAZY_BATCH_SIZE, pending.size()));
+            // loaded into the persistence context, where the proxies find them without another query
+            queryFactory.selectFrom(team).where(team.id.in(batch)).setHint(HINT_READONLY, true).fetch();
+            queries++;
+        }
+        return queries;
+    }
+
+    private static List<MemberTeamDto> toDtos(List<Member> members) {
+        return members.stream()
+            .map(found -> {
+                Team memberTeam = found.getTeam();
+                return new MemberTeamDto(found.getId(), found.getUsername(), found.getAge(),
+                    memberTeam == null ? null : memberTeam.getId(),
+                    memberTeam == null ? null : memberTeam.getName());
+            })
+            .collect(Collectors.toList());
+    }
+
+    private BooleanExpression[] conditions(MemberSearchCondition condition, List<Long> teamIds) {
+        return new BooleanExpression[]{
+            usernameEq(condition.getUsername()),
+            teamIdIn(teamIds),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    private List<Long> teamIds(String teamName) {
+        return StringUtils.hasText(teamName) ? teamNameCache.idsOf(teamName) : null;
+    }
+
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return teamIds != null ? member.team.id.in(teamIds) : null;
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+}
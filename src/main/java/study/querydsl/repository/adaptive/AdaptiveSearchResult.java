@@ -0,0 +1,20 @@
+package study.querydsl.repository.adaptive;
+
+import lombok.Getter;
+import study.querydsl.controller.dto.MemberTeamDto;
+
+import java.util.List;
+
+@Getter
+public class AdaptiveSearchResult {
+
+    private final List<MemberTeamDto> content;
+
+    private final FetchDecision decision;
+
+    public AdaptiveSearchResult(List<MemberTeamDto> content, FetchDecision decision) {
+        this.content = content;
+        this.decision = decision;
+    }
+
+}
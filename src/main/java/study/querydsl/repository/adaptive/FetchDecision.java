@@ -0,0 +1,28 @@
+package study.querydsl.repository.adaptive;
+
+import lombok.Getter;
+
+/**
+ * The strategy chosen for one execution and why it was chosen.
+ */
+@Getter
+public class FetchDecision {
+
+    private final QueryShape shape;
+
+    private final FetchStrategy strategy;
+
+    private final String reason;
+
+    public FetchDecision(QueryShape shape, FetchStrategy strategy, String reason) {
+        this.shape = shape;
+        this.strategy = strategy;
+        this.reason = reason;
+    }
+
+    @Override
+    public String toString() {
+        return shape + " -> " + strategy + " (" + reason + ")";
+    }
+
+}
@@ -0,0 +1,17 @@
+package study.querydsl.repository.adaptive;
+
+/**
+ * Ways {@link AdaptiveMemberSearch} can load members together with their team.
+ */
+public enum FetchStrategy {
+
+    /** Member entities with the team fetch joined: one query, entity hydration for both sides. */
+    FETCH_JOIN,
+
+    /** Member entities without the join, teams loaded afterwards with one {@code IN} query per batch of ids. */
+    BATCHED_LAZY,
+
+    /** Columns projected straight into the DTO: one joined query, no entities. */
+    DTO_PROJECTION
+
+}
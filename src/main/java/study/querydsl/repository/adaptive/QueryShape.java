@@ -0,0 +1,67 @@
+package study.querydsl.repository.adaptive;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.util.StringUtils;
+import study.querydsl.controller.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Which search conditions are set, regardless of their values. Executions of one shape produce similar
+ * plans and result sizes, so they share statistics.
+ */
+@EqualsAndHashCode
+public final class QueryShape {
+
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+
+    private final int bits;
+
+    private QueryShape(int bits) {
+        this.bits = bits;
+    }
+
+    public static QueryShape of(MemberSearchCondition condition) {
+        int bits = 0;
+        if (StringUtils.hasText(condition.getUsername())) {
+            bits |= USERNAME;
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            bits |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            bits |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            bits |= AGE_LOE;
+        }
+        return new QueryShape(bits);
+    }
+
+    public int bits() {
+        return bits;
+    }
+
+    @Override
+    public String toString() {
+        List<String> names = new ArrayList<>();
+        if ((bits & USERNAME) != 0) {
+            names.add("username");
+        }
+        if ((bits & TEAM_NAME) != 0) {
+            names.add("teamName");
+        }
+        if ((bits & AGE_GOE) != 0) {
+            names.add("ageGoe");
+        }
+        if ((bits & AGE_LOE) != 0) {
+            names.add("ageLoe");
+        }
+        return names.isEmpty() ? "unfiltered" : String.join("+", names);
+    }
+
+}
@@ -0,0 +1,100 @@
+package study.querydsl.repository.adaptive;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Exponentially weighted statistics of one {@link QueryShape}, per strategy.
+ * <p>
+ * Every strategy is sampled {@code minSamples} times before the cheapest by average latency is exploited.
+ * Every {@code recheckEvery}-th execution re-samples the strategy that has gone longest without a sample,
+ * so a choice made on a small table is revisited once the data grows.
+ */
+class ShapeStatistics {
+
+    private static final double ALPHA = 0.2;
+
+    private final QueryShape shape;
+
+    private final int minSamples;
+
+    private final int recheckEvery;
+
+    private final Map<FetchStrategy, StrategyStatistics> strategies = new EnumMap<>(FetchStrategy.class);
+
+    private long executions;
+
+    ShapeStatistics(QueryShape shape, int minSamples, int recheckEvery) {
+        this.shape = shape;
+        this.minSamples = minSamples;
+        this.recheckEvery = recheckEvery;
+        for (FetchStrategy strategy : FetchStrategy.values()) {
+            strategies.put(strategy, new StrategyStatistics());
+        }
+    }
+
+    synchronized FetchDecision decide() {
+        executions++;
+
+        for (Map.Entry<FetchStrategy, StrategyStatistics> entry : strategies.entrySet()) {
+            if (entry.getValue().samples < minSamples) {
+                return new FetchDecision(shape, entry.getKey(),
+                    "exploring, " + entry.getValue().samples + "/" + minSamples + " samples");
+            }
+        }
+
+        if (executions % recheckEvery == 0) {
+            FetchStrategy stalest = strategies.entrySet().stream()
+                .min(Map.Entry.comparingByValue((a, b) -> Long.compare(a.sampledAt, b.sampledAt)))
+                .get().getKey();
+            return new FetchDecision(shape, stalest,
+                "re-checking, last sampled " + (executions - strategies.get(stalest).sampledAt) + " executions ago");
+        }
+
+        FetchStrategy cheapest = strategies.entrySet().stream()
+            .min(Map.Entry.comparingByValue((a, b) -> Double.compare(a.nanos, b.nanos)))
+            .get().getKey();
+        StrategyStatistics best = strategies.get(cheapest);
+        String others = strategies.entrySet().stream()
+            .filter(entry -> entry.getKey() != cheapest)
+            .map(entry -> entry.getKey() + " " + millis(entry.getValue().nanos))
+            .collect(Collectors.joining(", "));
+        return new FetchDecision(shape, cheapest, String.format(Locale.ROOT,
+            "cheapest at %s avg, rows~%.0f, lazy loads~%.1f; %s",
+            millis(best.nanos), best.rows, best.lazyLoads, others));
+    }
+
+    synchronized void record(FetchStrategy strategy, long nanos, int rows, int lazyLoads) {
+        StrategyStatistics statistics = strategies.get(strategy);
+        statistics.sampledAt = executions;
+        if (statistics.samples++ == 0) {
+            statistics.nanos = nanos;
+            statistics.rows = rows;
+            statistics.lazyLoads = lazyLoads;
+        } else {
+            statistics.nanos += ALPHA * (nanos - statistics.nanos);
+            statistics.rows += ALPHA * (rows - statistics.rows);
+            statistics.lazyLoads += ALPHA * (lazyLoads - statistics.lazyLoads);
+        }
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000);
+    }
+
+    private static class StrategyStatistics {
+
+        private int samples;
+
+        private long sampledAt;
+
+        private double nanos;
+
+        private double rows;
+
+        private double lazyLoads;
+    }
+
+}
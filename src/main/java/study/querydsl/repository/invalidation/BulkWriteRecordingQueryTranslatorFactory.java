@@ -0,0 +1,67 @@
+package study.querydsl.repository.invalidation;
+
+import org.hibernate.engine.query.spi.EntityGraphQueryHint;
+import org.hibernate.engine.spi.QueryParameters;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.internal.ast.QueryTranslatorImpl;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hibernate's default HQL translator, except that bulk {@code update}, {@code delete} and {@code insert}
+ * statements record a {@link InvalidationPublisher#bump} for every entity type whose tables they write, as they
+ * bypass the session and so the entity events.
+ */
+public class BulkWriteRecordingQueryTranslatorFactory extends ASTQueryTranslatorFactory {
+
+    private final InvalidationPublisher invalidations;
+
+    public BulkWriteRecordingQueryTranslatorFactory(InvalidationPublisher invalidations) {
+        this.invalidations = invalidations;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public QueryTranslator createQueryTranslator(String queryIdentifier, String queryString, Map filters,
+                                                 SessionFactoryImplementor factory,
+                                                 EntityGraphQueryHint entityGraphQueryHint) {
+        return new BulkWriteRecordingQueryTranslator(queryIdentifier, queryString, filters, factory,
+            entityGraphQueryHint);
+    }
+
+    private class BulkWriteRecordingQueryTranslator extends QueryTranslatorImpl {
+
+        private final SessionFactoryImplementor factory;
+
+        @SuppressWarnings("rawtypes")
+        BulkWriteRecordingQueryTranslator(String queryIdentifier, String query, Map enabledFilters,
+                                          SessionFactoryImplementor factory, EntityGraphQueryHint entityGraphQueryHint) {
+            super(queryIdentifier, query, enabledFilters, factory, entityGraphQueryHint);
+            this.factory = factory;
+        }
+
+        @Override
+        public int executeUpdate(QueryParameters queryParameters, SharedSessionContractImplementor session) {
+            int updated = super.executeUpdate(queryParameters, session);
+            if (updated == 0) {
+                return updated;
+            }
+            Set<Serializable> tables = getQuerySpaces();
+            for (EntityPersister persister : factory.getMetamodel().entityPersisters().values()) {
+                if (!Collections.disjoint(tables, Arrays.asList(persister.getQuerySpaces()))) {
+                    invalidations.bump(persister.getMappedClass().getSimpleName());
+                }
+            }
+            return updated;
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+package study.querydsl.repository.invalidation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The invalidations of one committed transaction: changed ids per entity type, and types whose data version
+ * was bumped because the changed ids are unknown or too many to list.
+ * <p>
+ * Types are entity simple names, or any other region name a cache agrees on with its writers. On the wire ids
+ * are sorted and written as varint deltas, so a batch of neighbouring ids takes about a byte per id.
+ */
+public final class InvalidationBatch {
+
+    /**
+     * Bumping this type invalidates everything, e.g. after a peer may have missed messages.
+     */
+    public static final String ALL = "*";
+
+    private static final byte FORMAT = 1;
+
+    private final String origin;
+
+    private final Map<String, long[]> ids;
+
+    private final Set<String> bumped;
+
+    private InvalidationBatch(String origin, Map<String, long[]> ids, Set<String> bumped) {
+        this.origin = origin;
+        this.ids = ids;
+        this.bumped = bumped;
+    }
+
+    public static Builder builder(String origin, int maxIdsPerType) {
+        return new Builder(origin, maxIdsPerType);
+    }
+
+    public static InvalidationBatch all(String origin) {
+        return new InvalidationBatch(origin, Collections.emptyMap(), Collections.singleton(ALL));
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public boolean isEmpty() {
+        return ids.isEmpty() && bumped.isEmpty();
+    }
+
+    public boolean touches(Class<?> entityType) {
+        return touches(entityType.getSimpleName());
+    }
+
+    public boolean touches(String type) {
+        return ids.containsKey(type) || isBumped(type);
+    }
+
+    public boolean isBumped(String type) {
+        return bumped.contains(type) || bumped.contains(ALL);
+    }
+
+    /**
+     * @return the changed ids of this type in ascending order, empty when none were listed
+     */
+    public long[] ids(String type) {
+        long[] typeIds = ids.get(type);
+        return typeIds == null ? new long[0] : typeIds.clone();
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writeTo(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static InvalidationBatch fromBytes(byte[] bytes) {
+        try {
+            return readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(FORMAT);
+        out.writeUTF(origin);
+        writeVarLong(out, ids.size());
+        for (Map.Entry<String, long[]> entry : ids.entrySet()) {
+            out.writeUTF(entry.getKey());
+            long[] typeIds = entry.getValue();
+            writeVarLong(out, typeIds.length);
+            long previous = 0;
+            for (int i = 0; i < typeIds.length; i++) {
+                // the first id may be negative; after it every delta is positive
+                writeVarLong(out, i == 0 ? zigZag(typeIds[0]) : typeIds[i] - previous);
+                previous = typeIds[i];
+            }
+        }
+        writeVarLong(out, bumped.size());
+        for (String type : bumped) {
+            out.writeUTF(type);
+        }
+    }
+
+    public static InvalidationBatch readFrom(DataInput in) throws IOException {
+        byte format = in.readByte();
+        if (format != FORMAT) {
+            throw new IOException("Unknown invalidation batch format " + format);
+        }
+        String origin = in.readUTF();
+        int typeCount = (int) readVarLong(in);
+        Map<String, long[]> ids = new HashMap<>(typeCount * 2);
+        for (int t = 0; t < typeCount; t++) {
+            String type = in.readUTF();
+            long[] typeIds = new long[(int) readVarLong(in)];
+            for (int i = 0; i < typeIds.length; i++) {
+                typeIds[i] = i == 0 ? unZigZag(readVarLong(in)) : typeIds[i - 1] + readVarLong(in);
+            }
+            ids.put(type, typeIds);
+        }
+        int bumpCount = (int) readVarLong(in);
+        Set<String> bumped = new HashSet<>(bumpCount * 2);
+        for (int i = 0; i < bumpCount; i++) {
+            bumped.add(in.readUTF());
+        }
+        return new InvalidationBatch(origin, ids, bumped);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof InvalidationBatch)) {
+            return false;
+        }
+        InvalidationBatch other = (InvalidationBatch) o;
+        if (!origin.equals(other.origin) || !bumped.equals(other.bumped) || !ids.keySet().equals(other.ids.keySet())) {
+            return false;
+        }
+        return ids.entrySet().stream().allMatch(entry -> Arrays.equals(entry.getValue(), other.ids.get(entry.getKey())));
+    }
+
+    @Override
+    public int hashCode() {
+        return origin.hashCode() * 31 + bumped.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("InvalidationBatch(origin=").append(origin);
+        ids.forEach((type, typeIds) -> text.append(", ").append(type).append('=').append(typeIds.length).append(" ids"));
+        if (!bumped.isEmpty()) {
+            text.append(", bumped=").append(bumped);
+        }
+        return text.append(')').toString();
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Collects the invalidations of one transaction. A type with more than {@code maxIdsPerType} changed ids is
+     * sent as a version bump instead.
+     */
+    public static final class Builder {
+
+        private final String origin;
+
+        private final int maxIdsPerType;
+
+        private final Map<String, Set<Long>> ids = new HashMap<>();
+
+        private final Set<String> bumped = new HashSet<>();
+
+        private Builder(String origin, int maxIdsPerType) {
+            this.origin = origin;
+            this.maxIdsPerType = maxIdsPerType;
+        }
+
+        public Builder changed(String type, long id) {
+            if (bumped.contains(type)) {
+                return this;
+            }
+            Set<Long> typeIds = ids.computeIfAbsent(type, key -> new TreeSet<>());
+            typeIds.add(id);
+            if (typeIds.size() > maxIdsPerType) {
+                bump(type);
+            }
+            return this;
+        }
+
+        public Builder bump(String type) {
+            ids.remove(type);
+            bumped.add(type);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return ids.isEmpty() && bumped.isEmpty();
+        }
+
+        public boolean touches(String type) {
+            return ids.containsKey(type) || bumped.contains(type) || bumped.contains(ALL);
+        }
+
+        public InvalidationBatch build() {
+            Map<String, long[]> sorted = new HashMap<>(ids.size() * 2);
+            ids.forEach((type, typeIds) -> sorted.put(type, typeIds.stream().mapToLong(Long::longValue).toArray()));
+            return new InvalidationBatch(origin, sorted, new HashSet<>(bumped));
+        }
+    }
+
+}
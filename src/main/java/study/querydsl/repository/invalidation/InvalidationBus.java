@@ -0,0 +1,16 @@
+package study.querydsl.repository.invalidation;
+
+/**
+ * Carries invalidation batches between the instances of this application.
+ * <p>
+ * A published batch reaches the subscribers on the other instances; local caches are invalidated by
+ * {@link InvalidationPublisher} directly. Delivery is at most once, so a transport that may have dropped
+ * batches for a peer sends it {@link InvalidationBatch#all} once it reaches that peer again.
+ */
+public interface InvalidationBus {
+
+    void publish(InvalidationBatch batch);
+
+    void subscribe(InvalidationListener listener);
+
+}
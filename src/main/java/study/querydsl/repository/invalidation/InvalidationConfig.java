@@ -0,0 +1,77 @@
+package study.querydsl.repository.invalidation;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Chooses the {@link InvalidationBus} with {@code querydsl.invalidation.transport}: {@code loopback} (default,
+ * a single instance) or {@code socket}, listening on {@code bind-address}:{@code port} and sending to the
+ * comma separated {@code host:port} list in {@code peers}. Each instance tags its batches with
+ * {@code node-id}, random unless configured. Bulk HQL writes are recorded through
+ * {@link BulkWriteRecordingQueryTranslatorFactory}.
+ */
+@Configuration
+public class InvalidationConfig {
+
+    private final String nodeId;
+
+    public InvalidationConfig(@Value("${querydsl.invalidation.node-id:${random.uuid}}") String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @Bean
+    public InvalidationBus invalidationBus(@Value("${querydsl.invalidation.transport:loopback}") String transport,
+                                           @Value("${querydsl.invalidation.bind-address:127.0.0.1}") String bindAddress,
+                                           @Value("${querydsl.invalidation.port:7600}") int port,
+                                           @Value("${querydsl.invalidation.peers:}") String[] peers,
+                                           @Value("${querydsl.invalidation.queue-capacity:1024}") int queueCapacity)
+        throws IOException {
+        switch (transport) {
+            case "loopback":
+                return new LoopbackInvalidationBus();
+            case "socket":
+                return new SocketInvalidationBus(nodeId, new InetSocketAddress(bindAddress, port), addresses(peers), queueCapacity);
+            default:
+                throw new IllegalArgumentException("Unknown querydsl.invalidation.transport: " + transport);
+        }
+    }
+
+    @Bean
+    public InvalidationPublisher invalidationPublisher(InvalidationBus invalidationBus,
+                                                       ObjectProvider<InvalidationListener> listeners,
+                                                       @Value("${querydsl.invalidation.max-ids-per-type:1000}") int maxIdsPerType) {
+        return new InvalidationPublisher(invalidationBus, listeners, nodeId, maxIdsPerType);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer bulkWriteHibernateProperties(InvalidationPublisher invalidationPublisher) {
+        return properties -> properties.put(AvailableSettings.QUERY_TRANSLATOR,
+            new BulkWriteRecordingQueryTranslatorFactory(invalidationPublisher));
+    }
+
+    private static List<InetSocketAddress> addresses(String[] peers) {
+        return Arrays.stream(peers)
+            .filter(StringUtils::hasText)
+            .map(peer -> {
+                int colon = peer.lastIndexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("Invalidation peer must be host:port: " + peer);
+                }
+                return InetSocketAddress.createUnresolved(peer.substring(0, colon).trim(),
+                    Integer.parseInt(peer.substring(colon + 1).trim()));
+            })
+            .collect(Collectors.toList());
+    }
+
+}
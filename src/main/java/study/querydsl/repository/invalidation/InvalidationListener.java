@@ -0,0 +1,12 @@
+package study.querydsl.repository.invalidation;
+
+/**
+ * A cache that drops entries when data changes. Every bean of this type receives the batches committed on
+ * this instance and, through the {@link InvalidationBus}, those committed on its peers.
+ */
+@FunctionalInterface
+public interface InvalidationListener {
+
+    void invalidated(InvalidationBatch batch);
+
+}
@@ -0,0 +1,197 @@
+package study.querydsl.repository.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Collects what a transaction changed and, once it has committed, invalidates the local
+ * {@link InvalidationListener}s and publishes one {@link InvalidationBatch} to the peers on the
+ * {@link InvalidationBus}. Rolled back transactions publish nothing; changes made outside a transaction are
+ * published right away.
+ * <p>
+ * Every entity inserted, updated or deleted through Hibernate is recorded by id. Writes that bypass the
+ * session, like JDBC or bulk updates, record themselves through {@link #changed} or {@link #bump}.
+ * Batches arriving from peers are handed to the same listeners, except this instance's own.
+ */
+@Slf4j
+public class InvalidationPublisher implements Integrator, PostInsertEventListener, PostUpdateEventListener,
+    PostDeleteEventListener {
+
+    private final InvalidationBus bus;
+
+    private final ObjectProvider<InvalidationListener> listenerProvider;
+
+    private final String nodeId;
+
+    private final int maxIdsPerType;
+
+    private volatile List<InvalidationListener> listeners;
+
+    public InvalidationPublisher(InvalidationBus bus, ObjectProvider<InvalidationListener> listenerProvider,
+                                 String nodeId, int maxIdsPerType) {
+        this.bus = bus;
+        this.listenerProvider = listenerProvider;
+        this.nodeId = nodeId;
+        this.maxIdsPerType = maxIdsPerType;
+        bus.subscribe(batch -> {
+            if (!nodeId.equals(batch.getOrigin())) {
+                invalidateLocally(batch);
+            }
+        });
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void changed(Class<?> entityType, Object id) {
+        changed(entityType.getSimpleName(), id);
+    }
+
+    public void changed(String type, Object id) {
+        record(batch -> {
+            if (id instanceof Long || id instanceof Integer) {
+                batch.changed(type, ((Number) id).longValue());
+            } else {
+                batch.bump(type);
+            }
+        });
+    }
+
+    /**
+     * Records that any number of rows of this type may have changed.
+     */
+    public void bump(String type) {
+        record(batch -> batch.bump(type));
+    }
+
+    /**
+     * @return whether the current transaction changed rows of this type that are not published yet, because
+     * it has not committed
+     */
+    public boolean isPending(Class<?> entityType) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        PendingBatch pending = pendingBatch();
+        return pending != null && pending.batch.touches(entityType.getSimpleName());
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event.getPersister().getMappedClass(), event.getId());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        changed(event.getPersister().getMappedClass(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getPersister().getMappedClass(), event.getId());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void record(Consumer<InvalidationBatch.Builder> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            InvalidationBatch.Builder batch = InvalidationBatch.builder(nodeId, maxIdsPerType);
+            change.accept(batch);
+            dispatch(batch.build());
+            return;
+        }
+        PendingBatch pending = pendingBatch();
+        if (pending == null) {
+            pending = new PendingBatch();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        change.accept(pending.batch);
+    }
+
+    private PendingBatch pendingBatch() {
+        // looked up among the current synchronizations rather than bound as a resource, because resources are
+        // not suspended around REQUIRES_NEW and an inner transaction must publish on its own commit
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingBatch && ((PendingBatch) synchronization).owner() == this) {
+                return (PendingBatch) synchronization;
+            }
+        }
+        return null;
+    }
+
+    private void dispatch(InvalidationBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        invalidateLocally(batch);
+        try {
+            bus.publish(batch);
+        } catch (RuntimeException e) {
+            log.warn("Publishing {} failed", batch, e);
+        }
+    }
+
+    private void invalidateLocally(InvalidationBatch batch) {
+        if (listeners == null) {
+            listeners = listenerProvider.orderedStream().collect(Collectors.toList());
+        }
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.invalidated(batch);
+            } catch (RuntimeException e) {
+                log.warn("Invalidation listener failed on {}", batch, e);
+            }
+        }
+    }
+
+    private class PendingBatch implements TransactionSynchronization {
+
+        private final InvalidationBatch.Builder batch = InvalidationBatch.builder(nodeId, maxIdsPerType);
+
+        InvalidationPublisher owner() {
+            return InvalidationPublisher.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            dispatch(batch.build());
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package study.querydsl.repository.invalidation;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process {@link InvalidationBus}. Buses created with {@link #join()} act as further instances on the same
+ * network and receive each other's batches synchronously, encoded and decoded as on the wire. A single bus has
+ * no peers, which is what a single instance needs.
+ */
+public class LoopbackInvalidationBus implements InvalidationBus, DisposableBean {
+
+    private final List<LoopbackInvalidationBus> network;
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    public LoopbackInvalidationBus() {
+        this(new CopyOnWriteArrayList<>());
+    }
+
+    private LoopbackInvalidationBus(List<LoopbackInvalidationBus> network) {
+        this.network = network;
+        network.add(this);
+    }
+
+    /**
+     * @return a new bus on the same network, standing in for another instance
+     */
+    public LoopbackInvalidationBus join() {
+        return new LoopbackInvalidationBus(network);
+    }
+
+    @Override
+    public void publish(InvalidationBatch batch) {
+        byte[] bytes = batch.toBytes();
+        for (LoopbackInvalidationBus peer : network) {
+            if (peer != this) {
+                peer.deliver(InvalidationBatch.fromBytes(bytes));
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void destroy() {
+        network.remove(this);
+    }
+
+    private void deliver(InvalidationBatch batch) {
+        for (InvalidationListener listener : listeners) {
+            listener.invalidated(batch);
+        }
+    }
+
+}
@@ -0,0 +1,272 @@
+package study.querydsl.repository.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * {@link InvalidationBus} over plain TCP: every instance listens on a port and keeps one outgoing connection
+ * per configured peer, sending length-prefixed {@link InvalidationBatch} frames.
+ * <p>
+ * Publishing only queues the batch. A single sender thread writes everything queued since its last round to
+ * each peer and flushes once. A write that succeeds has only reached the kernel's buffer, so batches written
+ * just before a connection broke may be lost without an error. Every new connection therefore starts with
+ * {@link InvalidationBatch#all}, and a receiver whose incoming connection ends invalidates everything as
+ * well; the same happens when the queue overflows. A gap costs a cold cache but never a stale one.
+ * Unreachable peers are retried every second.
+ */
+@Slf4j
+public class SocketInvalidationBus implements InvalidationBus, DisposableBean {
+
+    private static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private static final long RETRY_MILLIS = 1000;
+
+    private final String nodeId;
+
+    private final ServerSocket server;
+
+    private final List<Peer> peers;
+
+    private final BlockingQueue<InvalidationBatch> outbox;
+
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Set<Socket> accepted = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService threads;
+
+    private volatile boolean closed;
+
+    public SocketInvalidationBus(String nodeId, InetSocketAddress bindAddress, List<InetSocketAddress> peerAddresses,
+                                 int queueCapacity) throws IOException {
+        this.nodeId = nodeId;
+        this.server = new ServerSocket();
+        this.server.setReuseAddress(true);
+        this.server.bind(bindAddress);
+        this.peers = peerAddresses.stream().map(Peer::new).collect(Collectors.toList());
+        this.outbox = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.threads = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "invalidation-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threads.execute(this::acceptLoop);
+        this.threads.execute(this::sendLoop);
+    }
+
+    public int getLocalPort() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public void publish(InvalidationBatch batch) {
+        if (!peers.isEmpty() && !outbox.offer(batch)) {
+            overflowed.set(true);
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        threads.shutdownNow();
+        closeQuietly(server);
+        accepted.forEach(SocketInvalidationBus::closeQuietly);
+        peers.forEach(Peer::close);
+    }
+
+    private void sendLoop() {
+        while (!closed) {
+            List<InvalidationBatch> batches = new ArrayList<>();
+            try {
+                // wakes up regularly so peers that missed batches are retried even when nothing new is published
+                InvalidationBatch next = outbox.poll(RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    batches.add(next);
+                    outbox.drainTo(batches);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (overflowed.getAndSet(false)) {
+                batches = Collections.singletonList(InvalidationBatch.all(nodeId));
+            }
+            for (Peer peer : peers) {
+                peer.send(batches);
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                accepted.add(socket);
+                threads.execute(() -> receive(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Accepting invalidation peer failed", e);
+                }
+            }
+        }
+    }
+
+    private void receive(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (!closed) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_FRAME) {
+                    throw new IOException("Invalid invalidation frame length " + length);
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                deliver(InvalidationBatch.fromBytes(frame));
+            }
+        } catch (EOFException e) {
+            log.debug("Invalidation peer {} disconnected", socket.getRemoteSocketAddress());
+        } catch (IOException | UncheckedIOException e) {
+            if (!closed) {
+                log.warn("Reading from invalidation peer {} failed", socket.getRemoteSocketAddress(), e);
+            }
+        } finally {
+            accepted.remove(socket);
+            closeQuietly(socket);
+        }
+        if (!closed) {
+            // the peer may have written batches that never arrived; it resends nothing until it reconnects
+            deliver(InvalidationBatch.all(String.valueOf(socket.getRemoteSocketAddress())));
+        }
+    }
+
+    private void deliver(InvalidationBatch batch) {
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.invalidated(batch);
+            } catch (RuntimeException e) {
+                log.warn("Invalidation listener failed on {}", batch, e);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Outgoing connection to one peer, used by the sender thread only.
+     */
+    private class Peer {
+
+        private final InetSocketAddress address;
+
+        private Socket socket;
+
+        private DataOutputStream out;
+
+        private boolean missed;
+
+        private long retryAt;
+
+        Peer(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        void send(List<InvalidationBatch> batches) {
+            if (batches.isEmpty() && !missed) {
+                return;
+            }
+            if (socket == null && !connect()) {
+                missed |= !batches.isEmpty();
+                return;
+            }
+            try {
+                if (missed) {
+                    write(InvalidationBatch.all(nodeId));
+                }
+                for (InvalidationBatch batch : batches) {
+                    write(batch);
+                }
+                out.flush();
+                missed = false;
+            } catch (IOException e) {
+                log.warn("Sending invalidations to {} failed: {}", address, e.toString());
+                close();
+                missed = true;
+                retryAt = System.currentTimeMillis() + RETRY_MILLIS;
+            }
+        }
+
+        void close() {
+            if (socket != null) {
+                closeQuietly(socket);
+                socket = null;
+                out = null;
+            }
+        }
+
+        private boolean connect() {
+            if (System.currentTimeMillis() < retryAt) {
+                return false;
+            }
+            Socket candidate = new Socket();
+            try {
+                candidate.connect(address, CONNECT_TIMEOUT_MILLIS);
+                candidate.setTcpNoDelay(true);
+                out = new DataOutputStream(new BufferedOutputStream(candidate.getOutputStream()));
+                socket = candidate;
+                // batches written to the previous connection may have been lost after the write returned
+                missed = true;
+                return true;
+            } catch (IOException e) {
+                closeQuietly(candidate);
+                log.debug("Invalidation peer {} unreachable: {}", address, e.toString());
+                retryAt = System.currentTimeMillis() + RETRY_MILLIS;
+                return false;
+            }
+        }
+
+        private void write(InvalidationBatch batch) throws IOException {
+            byte[] frame = batch.toBytes();
+            out.writeInt(frame.length);
+            out.write(frame);
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package study.querydsl.repository.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * The set of databases the member/team data is partitioned across.
+ * <p>
+ * A team lives on the shard its name hashes to, and its members live with it on shard {@code team_id % shardCount};
+ * members without a team live on shard 0. Ids are allocated from a per-shard sequence as {@code next * shardCount + shardIndex}, so they are
+ * unique across shards and the owning shard can be derived from the id alone.
+ */
+public class MemberShards implements DisposableBean {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    private final List<NamedParameterJdbcTemplate> shards = new ArrayList<>();
+
+    public MemberShards(ShardingProperties properties, UnaryOperator<DataSource> decorator) {
+        if (properties.getUrls().isEmpty()) {
+            throw new IllegalArgumentException("querydsl.sharding.urls must list at least one shard");
+        }
+
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("shard-schema.sql"));
+        for (int i = 0; i < properties.getUrls().size(); i++) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("shard-" + i);
+            pool.setJdbcUrl(properties.getUrls().get(i));
+            pool.setUsername(properties.getUsername());
+            pool.setPassword(properties.getPassword());
+            pools.add(pool);
+
+            DataSource dataSource = decorator.apply(pool);
+            schema.execute(dataSource);
+            shards.add(new NamedParameterJdbcTemplate(dataSource));
+        }
+    }
+
+    public int count() {
+        return shards.size();
+    }
+
+    public NamedParameterJdbcTemplate shard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * Teams of one name always share a shard, so a team name filter routes to that shard alone.
+     */
+    public int shardOfTeamName(String name) {
+        return (int) Math.floorMod(name == null ? 0 : name.hashCode(), (long) shards.size());
+    }
+
+    public int shardOfTeam(Long teamId) {
+        return teamId == null ? 0 : (int) Math.floorMod(teamId, (long) shards.size());
+    }
+
+    public long nextId(int shardIndex) {
+        Long next = shards.get(shardIndex).getJdbcTemplate()
+            .queryForObject("select next value for shard_seq", Long.class);
+        return next * shards.size() + shardIndex;
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+}
@@ -0,0 +1,336 @@
+package study.querydsl.repository.shard;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.util.StringUtils;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.support.QueryDeadline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * {@link MemberRepositoryCustom} over team-partitioned {@link MemberShards}.
+ * <p>
+ * Searches filtered by team name go only to the shard that name hashes to, where every team of that name is
+ * placed. Other searches fan out to every shard in parallel; each shard returns its first {@code offset + size}
+ * rows in page order, the partial pages are k-way merged and cut to the requested page, and the per-shard counts
+ * are summed. Pages reaching past {@code max-result-window} rows are refused.
+ * <p>
+ * Shard queries run under the caller's {@link QueryDeadline}, or {@code fan-out-timeout} when there is none, so
+ * a query left running after another shard failed still ends at the deadline. Shards not queried yet when one
+ * fails are skipped.
+ */
+public class ShardedMemberRepository implements MemberRepositoryCustom, DisposableBean {
+
+    private static final RowMapper<MemberTeamDto> ROW_MAPPER = (rs, rowNum) -> new MemberTeamDto(
+        rs.getLong("member_id"),
+        rs.getString("username"),
+        rs.getInt("age"),
+        rs.getObject("team_id", Long.class),
+        rs.getString("team_name"));
+
+    private final MemberShards shards;
+
+    private final ExecutorService fanOutExecutor;
+
+    private final int maxResultWindow;
+
+    private final long fanOutTimeoutMillis;
+
+    public ShardedMemberRepository(MemberShards shards, ShardingProperties properties) {
+        this.shards = shards;
+        this.maxResultWindow = properties.getMaxResultWindow();
+        this.fanOutTimeoutMillis = properties.getFanOutTimeout();
+        this.fanOutExecutor = Executors.newFixedThreadPool(properties.getFanOutThreads(), r -> {
+            Thread thread = new Thread(r, "member-shard-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Long saveTeam(String name) {
+        int shardIndex = shards.shardOfTeamName(name);
+        long teamId = shards.nextId(shardIndex);
+        shards.shard(shardIndex).update("insert into team (team_id, name) values (:teamId, :name)",
+            new MapSqlParameterSource("teamId", teamId).addValue("name", name));
+        return teamId;
+    }
+
+    public Long saveMember(String username, int age, Long teamId) {
+        int shardIndex = shards.shardOfTeam(teamId);
+        long memberId = shards.nextId(shardIndex);
+        shards.shard(shardIndex).update(
+            "insert into member (member_id, username, age, team_id) values (:memberId, :username, :age, :teamId)",
+            new MapSqlParameterSource("memberId", memberId)
+                .addValue("username", username)
+                .addValue("age", age)
+                .addValue("teamId", teamId));
+        return memberId;
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        ShardQuery query = new ShardQuery(condition, Sort.unsorted());
+        List<List<MemberTeamDto>> partials = gather(targetShards(condition), shard -> query.content(shard, -1));
+        return merge(partials, query.comparator(), 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageComplex(condition, pageable);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        ShardQuery query = new ShardQuery(condition, pageable.getSort());
+        long limit = pageable.getOffset() + pageable.getPageSize();
+        if (limit > maxResultWindow) {
+            throw new IllegalArgumentException("Sharded search pages may reach " + maxResultWindow
+                + " rows deep, requested " + limit);
+        }
+
+        List<Integer> targets = targetShards(condition);
+        List<ShardPage> partials = gather(targets, shard -> new ShardPage(query.content(shard, limit), query.count(shard)));
+
+        List<MemberTeamDto> content = merge(
+            partials.stream().map(partial -> partial.content).collect(Collectors.toList()),
+            query.comparator(), pageable.getOffset(), pageable.getPageSize());
+        long total = partials.stream().mapToLong(partial -> partial.count).sum();
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    public void destroy() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    private List<Integer> targetShards(MemberSearchCondition condition) {
+        if (StringUtils.hasText(condition.getTeamName())) {
+            return Collections.singletonList(shards.shardOfTeamName(condition.getTeamName()));
+        }
+        return IntStream.range(0, shards.count()).boxed().collect(Collectors.toList());
+    }
+
+    private <R> List<R> gather(List<Integer> targets, Function<Integer, R> perShard) {
+        boolean ownDeadline = !QueryDeadline.isActive();
+        if (ownDeadline) {
+            QueryDeadline.start(fanOutTimeoutMillis);
+        }
+        try {
+            if (targets.size() == 1) {
+                return Collections.singletonList(perShard.apply(targets.get(0)));
+            }
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            List<CompletableFuture<R>> futures = targets.stream()
+                .map(shard -> CompletableFuture.supplyAsync(QueryDeadline.propagate(() -> {
+                    if (failure.get() != null) {
+                        throw new CancellationException("Skipped after another shard query failed");
+                    }
+                    try {
+                        return perShard.apply(shard);
+                    } catch (RuntimeException e) {
+                        // queries already running on other shards cannot be interrupted; they end at the deadline
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                }), fanOutExecutor))
+                .collect(Collectors.toList());
+            try {
+                return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+            } catch (CompletionException e) {
+                if (failure.get() != null) {
+                    throw failure.get();
+                }
+                throw e;
+            }
+        } finally {
+            if (ownDeadline) {
+                QueryDeadline.clear();
+            }
+        }
+    }
+
+    private static List<MemberTeamDto> merge(List<List<MemberTeamDto>> partials, Comparator<MemberTeamDto> comparator,
+                                             long offset, int size) {
+        PriorityQueue<PeekingIterator> heads = new PriorityQueue<>((a, b) -> comparator.compare(a.peek(), b.peek()));
+        for (List<MemberTeamDto> partial : partials) {
+            if (!partial.isEmpty()) {
+                heads.add(new PeekingIterator(partial.iterator()));
+            }
+        }
+
+        List<MemberTeamDto> page = new ArrayList<>();
+        long skipped = 0;
+        while (!heads.isEmpty() && page.size() < size) {
+            PeekingIterator head = heads.poll();
+            MemberTeamDto next = head.next();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(next);
+            }
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return page;
+    }
+
+    private class ShardQuery {
+
+        private final String where;
+
+        private final MapSqlParameterSource params = new MapSqlParameterSource();
+
+        private final boolean joinTeamForCount;
+
+        private final String orderBy;
+
+        private final Comparator<MemberTeamDto> comparator;
+
+        ShardQuery(MemberSearchCondition condition, Sort sort) {
+            List<String> predicates = new ArrayList<>();
+            if (StringUtils.hasText(condition.getUsername())) {
+                predicates.add("m.username = :username");
+                params.addValue("username", condition.getUsername());
+            }
+            if (StringUtils.hasText(condition.getTeamName())) {
+                predicates.add("t.name = :teamName");
+                params.addValue("teamName", condition.getTeamName());
+            }
+            if (condition.getAgeGoe() != null) {
+                predicates.add("m.age >= :ageGoe");
+                params.addValue("ageGoe", condition.getAgeGoe());
+            }
+            if (condition.getAgeLoe() != null) {
+                predicates.add("m.age <= :ageLoe");
+                params.addValue("ageLoe", condition.getAgeLoe());
+            }
+            this.where = predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates);
+            this.joinTeamForCount = StringUtils.hasText(condition.getTeamName());
+
+            List<String> orderColumns = new ArrayList<>();
+            Comparator<MemberTeamDto> order = null;
+            for (Sort.Order sortOrder : sort) {
+                SortColumn column = SortColumn.of(sortOrder.getProperty());
+                orderColumns.add(column.column + (sortOrder.isAscending() ? " asc nulls first" : " desc nulls last"));
+                Comparator<MemberTeamDto> next = sortOrder.isAscending() ? column.comparator : column.comparator.reversed();
+                order = order == null ? next : order.thenComparing(next);
+            }
+            // member_id keeps the merge deterministic when the requested order has ties
+            orderColumns.add("m.member_id asc");
+            Comparator<MemberTeamDto> byId = Comparator.comparing(MemberTeamDto::getMemberId);
+            this.comparator = order == null ? byId : order.thenComparing(byId);
+            this.orderBy = " order by " + String.join(", ", orderColumns);
+        }
+
+        List<MemberTeamDto> content(int shard, long limit) {
+            String sql = "select m.member_id, m.username, m.age, t.team_id, t.name as team_name"
+                + " from member m left join team t on m.team_id = t.team_id"
+                + where + orderBy
+                + (limit >= 0 ? " limit " + limit : "");
+            return shards.shard(shard).query(sql, params, ROW_MAPPER);
+        }
+
+        long count(int shard) {
+            String sql = "select count(*) from member m"
+                + (joinTeamForCount ? " left join team t on m.team_id = t.team_id" : "")
+                + where;
+            return shards.shard(shard).queryForObject(sql, params, Long.class);
+        }
+
+        Comparator<MemberTeamDto> comparator() {
+            return comparator;
+        }
+    }
+
+    private enum SortColumn {
+        MEMBER_ID("memberId", "m.member_id", MemberTeamDto::getMemberId),
+        USERNAME("username", "m.username", MemberTeamDto::getUsername),
+        AGE("age", "m.age", MemberTeamDto::getAge),
+        TEAM_ID("teamId", "t.team_id", MemberTeamDto::getTeamId),
+        TEAM_NAME("teamName", "t.name", MemberTeamDto::getTeamName);
+
+        private final String property;
+
+        private final String column;
+
+        private final Comparator<MemberTeamDto> comparator;
+
+        <T extends Comparable<? super T>> SortColumn(String property, String column, Function<MemberTeamDto, T> getter) {
+            this.property = property;
+            this.column = column;
+            this.comparator = Comparator.comparing(getter, Comparator.nullsFirst(Comparator.naturalOrder()));
+        }
+
+        static SortColumn of(String property) {
+            for (SortColumn column : values()) {
+                if (column.property.equals(property)) {
+                    return column;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported sort property for sharded search: " + property);
+        }
+    }
+
+    private static class ShardPage {
+
+        private final List<MemberTeamDto> content;
+
+        private final long count;
+
+        ShardPage(List<MemberTeamDto> content, long count) {
+            this.content = content;
+            this.count = count;
+        }
+    }
+
+    private static class PeekingIterator {
+
+        private final Iterator<MemberTeamDto> iterator;
+
+        private MemberTeamDto head;
+
+        PeekingIterator(Iterator<MemberTeamDto> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+
+        MemberTeamDto peek() {
+            return head;
+        }
+
+        MemberTeamDto next() {
+            MemberTeamDto current = head;
+            head = iterator.hasNext() ? iterator.next() : null;
+            return current;
+        }
+
+        boolean hasNext() {
+            return head != null;
+        }
+    }
+
+}
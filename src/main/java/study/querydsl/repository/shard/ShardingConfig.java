@@ -0,0 +1,25 @@
+package study.querydsl.repository.shard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.repository.support.QueryDeadlineDataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "querydsl.search.backend", havingValue = "sharded")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    public MemberShards memberShards(ShardingProperties properties, MeterRegistry meterRegistry) {
+        return new MemberShards(properties, dataSource -> new QueryDeadlineDataSource(dataSource, meterRegistry));
+    }
+
+    @Bean
+    public ShardedMemberRepository shardedMemberRepository(MemberShards memberShards, ShardingProperties properties) {
+        return new ShardedMemberRepository(memberShards, properties);
+    }
+
+}
@@ -0,0 +1,38 @@
+package study.querydsl.repository.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter @Setter
+@ConfigurationProperties("querydsl.sharding")
+public class ShardingProperties {
+
+    /**
+     * JDBC urls of the shards, in shard index order. Members live on the shard of their team.
+     */
+    private List<String> urls = new ArrayList<>();
+
+    private String username = "sa";
+
+    private String password = "";
+
+    /**
+     * Threads used to query shards in parallel for unrouted searches.
+     */
+    private int fanOutThreads = 4;
+
+    /**
+     * Largest {@code offset + size} a paged search may ask for; every shard reads that many rows for an unrouted page.
+     */
+    private int maxResultWindow = 10_000;
+
+    /**
+     * Query budget in milliseconds for shard queries issued outside a request deadline.
+     */
+    private long fanOutTimeout = 30_000;
+
+}
@@ -0,0 +1,209 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.repository.TeamNameCache;
+import study.querydsl.repository.support.QueryDeadline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * Runs many member searches with few statements.
+ * <p>
+ * Conditions are combined into {@code UNION ALL} statements of at most {@code querydsl.batch-search.max-union}
+ * branches. Each branch selects its condition's index as a discriminator column, so the rows can be split
+ * back per condition. The first statement runs on the calling thread, any further ones on a bounded pool,
+ * each in its own read-only transaction under the caller's {@link QueryDeadline}. Conditions naming an
+ * unknown team are answered without a branch. At most {@code querydsl.batch-search.max-conditions} conditions
+ * are accepted per call, since each may match the whole table.
+ * <p>
+ * Always reads the main database, like the {@code jpa} and {@code sql} search backends; it knows nothing of
+ * the shards of the {@code sharded} backend.
+ */
+@Repository
+public class SqlMemberBatchSearch implements DisposableBean {
+
+    private static final NumberPath<Integer> CONDITION_INDEX = Expressions.numberPath(Integer.class, "condition_index");
+
+    private final SQLQueryFactory queryFactory;
+
+    private final TeamNameCache teamNameCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor;
+
+    private final int maxUnion;
+
+    private final int maxConditions;
+
+    public SqlMemberBatchSearch(SQLQueryFactory queryFactory, TeamNameCache teamNameCache,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${querydsl.batch-search.max-union:50}") int maxUnion,
+                                @Value("${querydsl.batch-search.max-conditions:100}") int maxConditions,
+                                @Value("${querydsl.batch-search.threads:4}") int threads) {
+        this.queryFactory = queryFactory;
+        this.teamNameCache = teamNameCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.maxUnion = maxUnion;
+        this.maxConditions = maxConditions;
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "member-batch-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return one result list per condition, in the order of {@code conditions}; rows are in member id order
+     */
+    public List<List<MemberTeamDto>> search(List<MemberSearchCondition> conditions) {
+        if (conditions.size() > maxConditions) {
+            throw new IllegalArgumentException("At most " + maxConditions + " conditions per batch search, got "
+                + conditions.size());
+        }
+        List<List<MemberTeamDto>> results = new ArrayList<>(conditions.size());
+        List<SQLQuery<Tuple>> branches = new ArrayList<>();
+        for (int i = 0; i < conditions.size(); i++) {
+            results.add(new ArrayList<>());
+            SQLQuery<Tuple> branch = branch(i, conditions.get(i));
+            if (branch != null) {
+                branches.add(branch);
+            }
+        }
+
+        List<List<SQLQuery<Tuple>>> statements = new ArrayList<>();
+        for (int from = 0; from < branches.size(); from += maxUnion) {
+            statements.add(branches.subList(from, Math.min(from + maxUnion, branches.size())));
+        }
+        for (List<Tuple> rows : execute(statements)) {
+            for (Tuple row : rows) {
+                results.get(row.get(0, Integer.class)).add(new MemberTeamDto(
+                    row.get(1, Long.class),
+                    row.get(2, String.class),
+                    row.get(3, Integer.class),
+                    row.get(4, Long.class),
+                    row.get(5, String.class)));
+            }
+        }
+        // UNION ALL keeps no order across branches, so each result is sorted here
+        results.forEach(result -> result.sort(Comparator.comparing(MemberTeamDto::getMemberId)));
+        return results;
+    }
+
+    public int getMaxConditions() {
+        return maxConditions;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private List<List<Tuple>> execute(List<List<SQLQuery<Tuple>>> statements) {
+        if (statements.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<CompletableFuture<List<Tuple>>> rest = statements.subList(1, statements.size()).stream()
+            .map(statement -> CompletableFuture.supplyAsync(QueryDeadline.propagate(
+                () -> transactionTemplate.execute(status -> union(statement))), executor))
+            .collect(Collectors.toList());
+
+        try {
+            List<List<Tuple>> results = new ArrayList<>(statements.size());
+            results.add(transactionTemplate.execute(status -> union(statements.get(0))));
+            for (CompletableFuture<List<Tuple>> future : rest) {
+                results.add(future.join());
+            }
+            return results;
+        } catch (CompletionException e) {
+            rest.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            rest.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    private List<Tuple> union(List<SQLQuery<Tuple>> branches) {
+        if (branches.size() == 1) {
+            return branches.get(0).fetch();
+        }
+        return queryFactory.query().unionAll(new ArrayList<SubQueryExpression<Tuple>>(branches)).fetch();
+    }
+
+    private SQLQuery<Tuple> branch(int index, MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) {
+            return null;
+        }
+
+        // the index is rendered as a literal: a bind parameter has no type in a select list
+        NumberExpression<Integer> discriminator = Expressions.numberTemplate(Integer.class, Integer.toString(index));
+        Expression<?>[] columns = {
+            discriminator.as(CONDITION_INDEX),
+            member.memberId,
+            member.username,
+            member.age,
+            team.teamId,
+            team.name
+        };
+        return queryFactory
+            .select(columns)
+            .from(member)
+            .leftJoin(team).on(member.teamId.eq(team.teamId))
+            .where(
+                usernameEq(condition.getUsername()),
+                teamIds != null ? member.teamId.in(teamIds) : null,
+                ageLoe(condition.getAgeLoe()),
+                ageGoe(condition.getAgeGoe()));
+    }
+
+    private List<Long> teamIds(String teamName) {
+        return StringUtils.hasText(teamName) ? teamNameCache.idsOf(teamName) : null;
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+}
@@ -0,0 +1,189 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.controller.dto.QMemberTeamDto;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.TeamNameCache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * {@link MemberRepositoryCustom} on querydsl-sql: the SQL is rendered directly from the {@code S*} metadata
+ * and JDBC rows are handed to the {@link QMemberTeamDto} constructor, skipping JPQL parsing, HQL translation
+ * and the persistence context. Like any native path it only sees flushed state.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class SqlMemberRepository implements MemberRepositoryCustom {
+
+    private final SQLQueryFactory queryFactory;
+
+    private final TeamNameCache teamNameCache;
+
+    public SqlMemberRepository(SQLQueryFactory queryFactory, TeamNameCache teamNameCache) {
+        this.queryFactory = queryFactory;
+        this.teamNameCache = teamNameCache;
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds)) {
+            return Collections.emptyList();
+        }
+
+        return contentQuery(condition, teamIds).fetch();
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds)) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
+        List<MemberTeamDto> content = contentQuery(condition, teamIds)
+            .offset(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .fetch();
+
+        return new PageImpl<>(content, pageable, countQuery(condition, teamIds).fetchOne());
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds)) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
+        List<MemberTeamDto> content = contentQuery(condition, teamIds)
+            .offset(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .fetch();
+
+        SQLQuery<Long> countQuery = countQuery(condition, teamIds);
+
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    }
+
+    /**
+     * Returns content and total in one statement. {@code count(*) over()} is evaluated over every filtered member
+     * before offset and limit apply, so each row of the page carries the total; only the page's rows are then
+     * joined to their team. A page past the end has no row to carry the total, and it is counted separately.
+     */
+    public Page<MemberTeamDto> searchPageWindowed(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (noSuchTeam(teamIds)) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
+        SMember pageRow = new SMember("page_row");
+        NumberPath<Long> total = Expressions.numberPath(Long.class, pageRow, "total");
+        QMemberTeamDto dto = new QMemberTeamDto(
+            pageRow.memberId,
+            pageRow.username,
+            pageRow.age,
+            team.teamId,
+            team.name
+        );
+
+        List<Tuple> rows = queryFactory
+            .select(dto, total)
+            .from(SQLExpressions
+                .select(member.memberId, member.username, member.age, member.teamId,
+                    SQLExpressions.count().over().as(total.getMetadata().getName()))
+                .from(member)
+                .where(
+                    usernameEq(condition.getUsername()),
+                    teamIdIn(teamIds),
+                    ageLoe(condition.getAgeLoe()),
+                    ageGoe(condition.getAgeGoe()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize()), pageRow)
+            .leftJoin(team).on(pageRow.teamId.eq(team.teamId))
+            .fetch();
+
+        if (rows.isEmpty()) {
+            long count = pageable.getOffset() == 0 ? 0 : countQuery(condition, teamIds).fetchOne();
+            return new PageImpl<>(Collections.emptyList(), pageable, count);
+        }
+
+        List<MemberTeamDto> content = rows.stream().map(row -> row.get(dto)).collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, rows.get(0).get(total));
+    }
+
+    private SQLQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition, List<Long> teamIds) {
+        return queryFactory
+            .select(new QMemberTeamDto(
+                member.memberId,
+                member.username,
+                member.age,
+                team.teamId,
+                team.name
+            ))
+            .from(member)
+            .leftJoin(team).on(member.teamId.eq(team.teamId))
+            .where(
+                usernameEq(condition.getUsername()),
+                teamIdIn(teamIds),
+                ageLoe(condition.getAgeLoe()),
+                ageGoe(condition.getAgeGoe()));
+    }
+
+    private SQLQuery<Long> countQuery(MemberSearchCondition condition, List<Long> teamIds) {
+        return queryFactory
+            .select(member.memberId.count())
+            .from(member)
+            .where(
+                usernameEq(condition.getUsername()),
+                teamIdIn(teamIds),
+                ageLoe(condition.getAgeLoe()),
+                ageGoe(condition.getAgeGoe()));
+    }
+
+    private List<Long> teamIds(String teamName) {
+        return StringUtils.hasText(teamName) ? teamNameCache.idsOf(teamName) : null;
+    }
+
+    private static boolean noSuchTeam(List<Long> teamIds) {
+        return teamIds != null && teamIds.isEmpty();
+    }
+
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return teamIds != null ? member.teamId.in(teamIds) : null;
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+}
@@ -0,0 +1,95 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pooled-lo id generator: reserves blocks of ids on a database sequence and hands them out from memory.
+ * <p>
+ * The sequence is created with {@code increment by} the block size, so every {@code next value} reserves
+ * {@code [value, value + blockSize)} for the calling instance alone and any number of instances can share the
+ * sequence. Inside a block ids come from an atomic counter; only the thread that runs a block dry takes a lock,
+ * to reserve the next one. Ids left in a block are lost on shutdown, so ids have gaps.
+ * <p>
+ * The block size is {@value #BLOCK_SIZE} from the Hibernate settings (default 50), or the {@code block_size}
+ * generator parameter. It must match the increment of an existing sequence, otherwise blocks of different
+ * instances would overlap; Hibernate checks this on startup and refuses to start, so changing the size on an
+ * existing database needs an {@code alter sequence ... increment by} first.
+ */
+public class BlockIdGenerator extends SequenceStyleGenerator {
+
+    public static final String BLOCK_SIZE = "querydsl.id_block_size";
+
+    public static final String BLOCK_SIZE_PARAM = "block_size";
+
+    private static final int DEFAULT_BLOCK_SIZE = 50;
+
+    private final ReentrantLock reserveLock = new ReentrantLock();
+
+    private volatile Block block = new Block(0, 0);
+
+    private int blockSize;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        Object configured = serviceRegistry.getService(ConfigurationService.class).getSettings().get(BLOCK_SIZE);
+        int defaultSize = configured == null ? DEFAULT_BLOCK_SIZE : Integer.parseInt(configured.toString());
+        this.blockSize = ConfigurationHelper.getInt(BLOCK_SIZE_PARAM, params, defaultSize);
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Id block size must be positive: " + blockSize);
+        }
+
+        // pooled-lo only so the sequence is created with the block size as increment; generate() does the pooling
+        params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            reserveLock.lock();
+            try {
+                // another thread may have reserved a fresh block while this one waited
+                if (block == current) {
+                    long start = getDatabaseStructure().buildCallback(session).getNextValue().makeValue().longValue();
+                    block = new Block(start, start + blockSize);
+                }
+            } finally {
+                reserveLock.unlock();
+            }
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+
+        private final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Hands every {@link Integrator} bean to Hibernate. {@code hibernate.integrator_provider} takes a single
+ * provider, so features that register event listeners declare an integrator bean instead of setting it.
+ */
+@Configuration
+public class HibernateIntegratorConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer integratorHibernateProperties(ObjectProvider<Integrator> integrators) {
+        return properties -> {
+            List<Integrator> ordered = integrators.orderedStream().collect(Collectors.toList());
+            if (!ordered.isEmpty()) {
+                properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> ordered);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,19 @@
+package study.querydsl.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Passes {@code querydsl.id-block.size} on to the {@link BlockIdGenerator}s of {@code Member} and {@code Team}.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer idBlockHibernateProperties(@Value("${querydsl.id-block.size:50}") int blockSize) {
+        return properties -> properties.put(BlockIdGenerator.BLOCK_SIZE, String.valueOf(blockSize));
+    }
+
+}
@@ -0,0 +1,222 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes left joins to to-one associations whose alias is not referenced anywhere else in the query.
+ * <p>
+ * A left join over a {@code @ManyToOne} / {@code @OneToOne} association never changes the number of
+ * rows, so when nothing selects, filters, groups or orders by the joined alias the join is pure overhead.
+ * Fetch joins, inner joins and collection joins are always kept.
+ */
+public class JoinPruner {
+
+    private final Metamodel metamodel;
+
+    public JoinPruner(Metamodel metamodel) {
+        this.metamodel = metamodel;
+    }
+
+    /**
+     * @return the given metadata when nothing can be pruned, otherwise a copy without the unreferenced joins
+     */
+    public QueryMetadata prune(QueryMetadata metadata) {
+        List<JoinExpression> joins = new ArrayList<>(metadata.getJoins());
+        boolean pruned = false;
+
+        // removing a join may leave the alias it was hanging off unreferenced, so walk back to front
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            JoinExpression join = joins.get(i);
+            if (isPrunable(join) && !isReferenced(alias(join), metadata, joins, join)) {
+                joins.remove(i);
+                pruned = true;
+            }
+        }
+
+        return pruned ? copyWithJoins(metadata, joins) : metadata;
+    }
+
+    private boolean isPrunable(JoinExpression join) {
+        if (join.getType() != JoinType.LEFTJOIN || !join.getFlags().isEmpty()) {
+            return false;
+        }
+        Path<?> alias = alias(join);
+        if (alias == null) {
+            return false;
+        }
+        Path<?> association = (Path<?>) ((Operation<?>) join.getTarget()).getArg(0);
+        return isToOne(association);
+    }
+
+    private boolean isToOne(Path<?> association) {
+        Path<?> parent = association.getMetadata().getParent();
+        if (parent == null) {
+            return false;
+        }
+        try {
+            ManagedType<?> owner = metamodel.managedType(parent.getType());
+            Attribute.PersistentAttributeType type =
+                owner.getAttribute(association.getMetadata().getName()).getPersistentAttributeType();
+            return type == Attribute.PersistentAttributeType.MANY_TO_ONE
+                || type == Attribute.PersistentAttributeType.ONE_TO_ONE;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean isReferenced(Path<?> alias, QueryMetadata metadata, List<JoinExpression> joins, JoinExpression self) {
+        Set<Path<?>> roots = new HashSet<>();
+        RootCollector collector = new RootCollector();
+
+        collector.collect(metadata.getProjection(), roots);
+        collector.collect(metadata.getWhere(), roots);
+        collector.collect(metadata.getHaving(), roots);
+        metadata.getGroupBy().forEach(expr -> collector.collect(expr, roots));
+        metadata.getOrderBy().forEach(order -> collector.collect(order.getTarget(), roots));
+        metadata.getFlags().forEach(flag -> collector.collect(flag.getFlag(), roots));
+        for (JoinExpression join : joins) {
+            if (join != self) {
+                collector.collect(join.getTarget(), roots);
+                collector.collect(join.getCondition(), roots);
+            }
+        }
+
+        return roots.contains(alias);
+    }
+
+    private static Path<?> alias(JoinExpression join) {
+        if (join.getTarget() instanceof Operation) {
+            Operation<?> target = (Operation<?>) join.getTarget();
+            if (target.getOperator() == Ops.ALIAS && target.getArg(0) instanceof Path) {
+                return (Path<?>) target.getArg(1);
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static QueryMetadata copyWithJoins(QueryMetadata source, List<JoinExpression> joins) {
+        DefaultQueryMetadata copy = new DefaultQueryMetadata().noValidate();
+        for (JoinExpression join : joins) {
+            copy.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                copy.addJoinCondition(join.getCondition());
+            }
+            for (JoinFlag flag : join.getFlags()) {
+                copy.addJoinFlag(flag);
+            }
+        }
+        copy.setProjection(source.getProjection());
+        if (source.getWhere() != null) {
+            copy.addWhere(source.getWhere());
+        }
+        source.getGroupBy().forEach(copy::addGroupBy);
+        if (source.getHaving() != null) {
+            copy.addHaving(source.getHaving());
+        }
+        for (OrderSpecifier<?> order : source.getOrderBy()) {
+            copy.addOrderBy(order);
+        }
+        for (QueryFlag flag : source.getFlags()) {
+            copy.addFlag(flag);
+        }
+        for (Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet()) {
+            copy.setParam((ParamExpression<Object>) param.getKey(), param.getValue());
+        }
+        copy.setModifiers(source.getModifiers());
+        copy.setDistinct(source.isDistinct());
+        copy.setUnique(source.isUnique());
+        return copy;
+    }
+
+    /**
+     * Collects the root variable of every path used in an expression tree, including correlated subqueries.
+     */
+    private static class RootCollector implements Visitor<Void, Set<Path<?>>> {
+
+        void collect(Expression<?> expr, Set<Path<?>> roots) {
+            if (expr != null) {
+                expr.accept(this, roots);
+            }
+        }
+
+        @Override
+        public Void visit(Constant<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<Path<?>> roots) {
+            expr.getArgs().forEach(arg -> collect(arg, roots));
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<Path<?>> roots) {
+            expr.getArgs().forEach(arg -> collect(arg, roots));
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<Path<?>> roots) {
+            roots.add(expr.getRoot());
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<Path<?>> roots) {
+            QueryMetadata metadata = expr.getMetadata();
+            collect(metadata.getProjection(), roots);
+            collect(metadata.getWhere(), roots);
+            collect(metadata.getHaving(), roots);
+            metadata.getGroupBy().forEach(group -> collect(group, roots));
+            metadata.getOrderBy().forEach(order -> collect(order.getTarget(), roots));
+            for (JoinExpression join : metadata.getJoins()) {
+                collect(join.getTarget(), roots);
+                collect(join.getCondition(), roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<Path<?>> roots) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    collect((Expression<?>) arg, roots);
+                }
+            }
+            return null;
+        }
+    }
+
+}
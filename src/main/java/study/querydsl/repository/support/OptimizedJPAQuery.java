@@ -0,0 +1,47 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import javax.persistence.EntityManager;
+
+/**
+ * {@link JPAQuery} that runs the query through {@link JoinPruner} right before it is serialized,
+ * so both the content and the count form of a query only carry the joins they actually need.
+ */
+public class OptimizedJPAQuery<T> extends JPAQuery<T> {
+
+    private final JoinPruner joinPruner;
+
+    public OptimizedJPAQuery(EntityManager em, JoinPruner joinPruner) {
+        super(em);
+        this.joinPruner = joinPruner;
+    }
+
+    public OptimizedJPAQuery(EntityManager em, JPQLTemplates templates, QueryMetadata metadata, JoinPruner joinPruner) {
+        super(em, templates, metadata);
+        this.joinPruner = joinPruner;
+    }
+
+    @Override
+    protected JPQLSerializer serialize(boolean forCountRow, boolean validate) {
+        QueryMetadata metadata = joinPruner.prune(getMetadata());
+        if (metadata == getMetadata()) {
+            return super.serialize(forCountRow, validate);
+        }
+
+        JPQLSerializer serializer = createSerializer();
+        serializer.serialize(metadata, forCountRow, null);
+        return serializer;
+    }
+
+    @Override
+    public OptimizedJPAQuery<T> clone(EntityManager entityManager, JPQLTemplates templates) {
+        OptimizedJPAQuery<T> q = new OptimizedJPAQuery<>(entityManager, templates, getMetadata().clone(), joinPruner);
+        q.clone(this);
+        return q;
+    }
+
+}
@@ -0,0 +1,28 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import javax.persistence.EntityManager;
+
+/**
+ * {@link JPAQueryFactory} whose queries are {@link OptimizedJPAQuery} instances.
+ */
+public class OptimizedJPAQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager em;
+
+    private final JoinPruner joinPruner;
+
+    public OptimizedJPAQueryFactory(EntityManager em) {
+        super(em);
+        this.em = em;
+        this.joinPruner = new JoinPruner(em.getMetamodel());
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        return new OptimizedJPAQuery<Void>(em, joinPruner);
+    }
+
+}
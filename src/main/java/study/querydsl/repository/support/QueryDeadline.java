@@ -0,0 +1,84 @@
+package study.querydsl.repository.support;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread time budget for the queries issued while handling one request.
+ * <p>
+ * Once started, every JDBC statement created on the thread gets the remaining budget as its query timeout,
+ * and statements created after the deadline has passed are refused without reaching the database.
+ */
+public final class QueryDeadline {
+
+    private static final ThreadLocal<Long> deadlineNanos = new ThreadLocal<>();
+
+    private QueryDeadline() {
+    }
+
+    public static void start(long budgetMillis) {
+        deadlineNanos.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+    }
+
+    public static void clear() {
+        deadlineNanos.remove();
+    }
+
+    public static boolean isActive() {
+        return deadlineNanos.get() != null;
+    }
+
+    public static long remainingMillis() {
+        Long deadline = deadlineNanos.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    /**
+     * Wraps a task so that it runs under the caller's deadline on whichever thread executes it.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        Long deadline = deadlineNanos.get();
+        return () -> {
+            Long previous = deadlineNanos.get();
+            set(deadline);
+            try {
+                return task.get();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    private static void set(Long deadline) {
+        if (deadline == null) {
+            deadlineNanos.remove();
+        } else {
+            deadlineNanos.set(deadline);
+        }
+    }
+
+    /**
+     * Sets the remaining budget as the statement's query timeout. JDBC timeouts are whole seconds,
+     * so the budget is rounded up rather than down to zero, which would mean "no timeout".
+     * <p>
+     * Without a deadline the timeout is reset explicitly: some drivers (H2 among them) keep it on the
+     * session, where it would leak into later statements on the same pooled connection.
+     */
+    static void applyTo(Statement statement) throws SQLException {
+        if (!isActive()) {
+            statement.setQueryTimeout(0);
+            return;
+        }
+        long remaining = remainingMillis();
+        if (remaining <= 0) {
+            throw new QueryDeadlineExceededException(-remaining);
+        }
+        statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000));
+    }
+
+}
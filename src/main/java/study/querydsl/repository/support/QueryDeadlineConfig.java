@@ -0,0 +1,27 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class QueryDeadlineConfig {
+
+    @Bean
+    public static BeanPostProcessor queryDeadlineDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof QueryDeadlineDataSource)) {
+                    return new QueryDeadlineDataSource((DataSource) bean, meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+}
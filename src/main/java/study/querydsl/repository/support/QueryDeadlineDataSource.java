@@ -0,0 +1,117 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+/**
+ * Propagates the current {@link QueryDeadline} to every statement handed out by the target data source,
+ * so JPA, Querydsl and Spring Data queries are all bounded the same way.
+ * <p>
+ * Timeouts are counted in {@code querydsl.query.timeouts}, tagged with {@code cause=deadline} when the
+ * statement was refused up front and {@code cause=statement} when the driver cancelled it mid-flight.
+ */
+public class QueryDeadlineDataSource extends DelegatingDataSource {
+
+    static final String TIMEOUT_METRIC = "querydsl.query.timeouts";
+
+    private final Counter deadlineTimeouts;
+
+    private final Counter statementTimeouts;
+
+    public QueryDeadlineDataSource(DataSource target, MeterRegistry meterRegistry) {
+        super(target);
+        this.deadlineTimeouts = meterRegistry.counter(TIMEOUT_METRIC, "cause", "deadline");
+        this.statementTimeouts = meterRegistry.counter(TIMEOUT_METRIC, "cause", "statement");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            if (!(result instanceof Statement)) {
+                return result;
+            }
+
+            Statement statement = (Statement) result;
+            try {
+                QueryDeadline.applyTo(statement);
+            } catch (QueryDeadlineExceededException e) {
+                deadlineTimeouts.increment();
+                statement.close();
+                throw e;
+            }
+            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{statementType(statement)}, new StatementHandler(statement));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+
+        StatementHandler(Statement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            try {
+                return invokeTarget(target, method, args);
+            } catch (SQLTimeoutException e) {
+                statementTimeouts.increment();
+                throw e;
+            }
+        }
+    }
+
+    private static Class<?> statementType(Statement statement) {
+        if (statement instanceof CallableStatement) {
+            return CallableStatement.class;
+        }
+        return statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package study.querydsl.repository.support;
+
+import java.sql.SQLTimeoutException;
+
+/**
+ * Raised instead of issuing a statement once the request's {@link QueryDeadline} has passed.
+ * Being a {@link SQLTimeoutException}, Hibernate and Spring translate it like a driver-side timeout.
+ */
+public class QueryDeadlineExceededException extends SQLTimeoutException {
+
+    public QueryDeadlineExceededException(long overdueMillis) {
+        super("Query deadline exceeded " + overdueMillis + "ms ago, statement not issued");
+    }
+
+}
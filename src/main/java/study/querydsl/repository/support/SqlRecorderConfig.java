@@ -0,0 +1,43 @@
+package study.querydsl.repository.support;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnProperty(name = "querydsl.sql-recorder.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlRecorderConfig {
+
+    @Bean
+    public SqlSampleBuffer sqlSampleBuffer(@Value("${querydsl.sql-recorder.capacity:1024}") int capacity) {
+        return new SqlSampleBuffer(capacity);
+    }
+
+    @Bean
+    public SqlSamplesEndpoint sqlSamplesEndpoint(SqlSampleBuffer sqlSampleBuffer) {
+        return new SqlSamplesEndpoint(sqlSampleBuffer);
+    }
+
+    @Bean
+    public static BeanPostProcessor sqlRecordingDataSourcePostProcessor(
+        ObjectProvider<SqlSampleBuffer> sqlSampleBuffer,
+        @Value("${querydsl.sql-recorder.slow-threshold:100}") long slowThresholdMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof SqlRecordingDataSource)) {
+                    return new SqlRecordingDataSource((DataSource) bean, sqlSampleBuffer.getObject(),
+                        TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis));
+                }
+                return bean;
+            }
+        };
+    }
+
+}
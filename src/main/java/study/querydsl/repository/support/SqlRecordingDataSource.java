@@ -0,0 +1,205 @@
+package study.querydsl.repository.support;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records statements and their bind values into a {@link SqlSampleBuffer} instead of logging them.
+ * <p>
+ * Every statement of a request marked by {@link SqlSampling} is recorded, and so is any statement whose
+ * execution takes at least the slow threshold. Bind values are only referenced while the statement runs
+ * and turned into strings when a sample is actually kept, so unsampled fast statements cost a timer read
+ * and an array store per parameter. A JDBC batch is recorded once, when it is executed, with one bind entry per
+ * added row ({@code [value, ...]}), as Hibernate sends inserts and updates in batches of
+ * {@code hibernate.jdbc.batch_size}; the row's binds are copied on {@code addBatch}. Plain statement batches
+ * record their statements joined. Executions are also counted per thread in {@link StatementCounter}.
+ */
+public class SqlRecordingDataSource extends DelegatingDataSource {
+
+    private final SqlSampleBuffer buffer;
+
+    private final long slowThresholdNanos;
+
+    public SqlRecordingDataSource(DataSource target, SqlSampleBuffer buffer, long slowThresholdNanos) {
+        super(target);
+        this.buffer = buffer;
+        this.slowThresholdNanos = slowThresholdNanos;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            if (!(result instanceof Statement)) {
+                return result;
+            }
+
+            Statement statement = (Statement) result;
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{statementType(statement)}, new StatementHandler(statement, sql));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+
+        private final String preparedSql;
+
+        private Object[] binds = new Object[8];
+
+        private int bindCount;
+
+        private List<Object[]> batchRows;
+
+        private List<String> batchSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                Arrays.fill(binds, 0, bindCount, null);
+                bindCount = 0;
+            } else if (name.equals("addBatch")) {
+                addBatch(args);
+            } else if (name.equals("clearBatch")) {
+                batchRows = null;
+                batchSql = null;
+            }
+            return invokeTarget(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            StatementCounter.increment();
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invokeTarget(target, method, args);
+                failed = false;
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                boolean sampled = SqlSampling.isSampled();
+                boolean batch = method.getName().startsWith("executeBatch")
+                    || method.getName().startsWith("executeLargeBatch");
+                if (sampled || elapsed >= slowThresholdNanos) {
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+                    if (batch && batchSql != null) {
+                        sql = String.join(";\n", batchSql);
+                    }
+                    buffer.add(System.currentTimeMillis(), Thread.currentThread().getName(), sql,
+                        batch && batchRows != null ? batchValues() : bindValues(),
+                        elapsed / 1_000, sampled ? "sampled" : "slow", failed);
+                }
+                if (batch) {
+                    batchRows = null;
+                    batchSql = null;
+                }
+            }
+        }
+
+        private void addBatch(Object[] args) {
+            if (args != null && args.length == 1 && args[0] instanceof String) {
+                if (batchSql == null) {
+                    batchSql = new ArrayList<>();
+                }
+                batchSql.add((String) args[0]);
+                return;
+            }
+            if (batchRows == null) {
+                batchRows = new ArrayList<>();
+            }
+            batchRows.add(Arrays.copyOf(binds, bindCount));
+        }
+
+        private void bind(int index, Object value) {
+            if (index > binds.length) {
+                binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+            }
+            binds[index - 1] = value;
+            bindCount = Math.max(bindCount, index);
+        }
+
+        private List<String> batchValues() {
+            List<String> rows = new ArrayList<>(batchRows.size());
+            for (Object[] row : batchRows) {
+                rows.add(Arrays.toString(row));
+            }
+            return rows;
+        }
+
+        private List<String> bindValues() {
+            if (bindCount == 0) {
+                return Collections.emptyList();
+            }
+            List<String> values = new ArrayList<>(bindCount);
+            for (int i = 0; i < bindCount; i++) {
+                values.add(String.valueOf(binds[i]));
+            }
+            return values;
+        }
+    }
+
+    private static Class<?> statementType(Statement statement) {
+        if (statement instanceof CallableStatement) {
+            return CallableStatement.class;
+        }
+        return statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One statement captured by {@link SqlRecordingDataSource}.
+ */
+@Getter
+public class SqlSample {
+
+    private final long sequence;
+
+    private final long timestamp;
+
+    private final String thread;
+
+    private final String sql;
+
+    private final List<String> binds;
+
+    private final long elapsedMicros;
+
+    /**
+     * {@code sampled} when the request was picked for sampling, {@code slow} when the statement crossed the
+     * slow threshold outside a sampled request.
+     */
+    private final String reason;
+
+    private final boolean failed;
+
+    public SqlSample(long sequence, long timestamp, String thread, String sql, List<String> binds,
+                     long elapsedMicros, String reason, boolean failed) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.thread = thread;
+        this.sql = sql;
+        this.binds = binds;
+        this.elapsedMicros = elapsedMicros;
+        this.reason = reason;
+        this.failed = failed;
+    }
+
+}
@@ -0,0 +1,63 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring of the most recent {@link SqlSample}s.
+ * <p>
+ * Writers claim a sequence number with one atomic increment and overwrite the slot it maps to, so recording
+ * never blocks and never allocates beyond the sample itself. Readers copy whatever the slots hold at that
+ * moment; a snapshot taken while writers are active may miss samples that are being overwritten.
+ */
+public class SqlSampleBuffer {
+
+    private final AtomicReferenceArray<SqlSample> slots;
+
+    private final int mask;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SqlSampleBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity) * 2 - 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void add(long timestamp, String thread, String sql, List<String> binds, long elapsedMicros,
+                    String reason, boolean failed) {
+        long next = sequence.getAndIncrement();
+        slots.lazySet((int) (next & mask),
+            new SqlSample(next, timestamp, thread, sql, binds, elapsedMicros, reason, failed));
+    }
+
+    /**
+     * @return the samples currently held, oldest first
+     */
+    public List<SqlSample> snapshot() {
+        List<SqlSample> samples = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            SqlSample sample = slots.get(i);
+            if (sample != null) {
+                samples.add(sample);
+            }
+        }
+        samples.sort(Comparator.comparingLong(SqlSample::getSequence));
+        return samples;
+    }
+
+    /**
+     * @return the number of samples recorded since startup, including those already overwritten
+     */
+    public long recorded() {
+        return sequence.get();
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+}
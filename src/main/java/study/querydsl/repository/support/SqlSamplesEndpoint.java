@@ -0,0 +1,31 @@
+package study.querydsl.repository.support;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Dumps the recorded SQL samples at {@code /actuator/sqlsamples}. Samples carry bind values, so the endpoint
+ * is only exposed over HTTP with the {@code sql-samples} profile, and otherwise over JMX when that is enabled.
+ */
+@Endpoint(id = "sqlsamples")
+public class SqlSamplesEndpoint {
+
+    private final SqlSampleBuffer buffer;
+
+    public SqlSamplesEndpoint(SqlSampleBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> samples() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("capacity", buffer.capacity());
+        body.put("recorded", buffer.recorded());
+        body.put("samples", buffer.snapshot());
+        return body;
+    }
+
+}
@@ -0,0 +1,26 @@
+package study.querydsl.repository.support;
+
+/**
+ * Per-thread flag telling {@link SqlRecordingDataSource} to record every statement issued while handling the
+ * current request, not just the slow ones.
+ */
+public final class SqlSampling {
+
+    private static final ThreadLocal<Boolean> sampled = new ThreadLocal<>();
+
+    private SqlSampling() {
+    }
+
+    public static void start() {
+        sampled.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        sampled.remove();
+    }
+
+    public static boolean isSampled() {
+        return sampled.get() != null;
+    }
+
+}
@@ -0,0 +1,24 @@
+package study.querydsl.repository.support;
+
+/**
+ * Per-thread count of executed JDBC statements, maintained by {@link SqlRecordingDataSource}.
+ */
+public final class StatementCounter {
+
+    private static final ThreadLocal<long[]> executed = ThreadLocal.withInitial(() -> new long[1]);
+
+    private StatementCounter() {
+    }
+
+    /**
+     * @return statements executed on this thread since it started; callers take differences
+     */
+    public static long current() {
+        return executed.get()[0];
+    }
+
+    static void increment() {
+        executed.get()[0]++;
+    }
+
+}
@@ -0,0 +1,77 @@
+package study.querydsl.repository.support.jfr;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEntityEvent;
+import org.hibernate.event.spi.FlushEntityEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Emits a {@link PersistenceFlushEvent} per Hibernate flush.
+ * <p>
+ * Hibernate creates one instance per session ({@code hibernate.session.events.auto}) and reports the number of
+ * entities and collections it dirty-checked at the end of the flush. The dirty ones are counted by
+ * {@link DirtyEntityCounter}, which runs after Hibernate's own flush-entity listener has computed the dirty
+ * properties.
+ */
+public class FlushEventRecorder extends BaseSessionEventListener {
+
+    private static final jdk.jfr.EventType EVENT_TYPE = jdk.jfr.EventType.getEventType(PersistenceFlushEvent.class);
+
+    private static final ThreadLocal<int[]> dirtyEntities = ThreadLocal.withInitial(() -> new int[1]);
+
+    private PersistenceFlushEvent event;
+
+    @Override
+    public void flushStart() {
+        if (EVENT_TYPE.isEnabled()) {
+            dirtyEntities.get()[0] = 0;
+            event = new PersistenceFlushEvent();
+            event.begin();
+        }
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.entitiesChecked = numberOfEntities;
+            event.entitiesDirty = dirtyEntities.get()[0];
+            event.collections = numberOfCollections;
+            event.commit();
+        }
+        event = null;
+    }
+
+    public static class DirtyEntityCounter implements Integrator, FlushEntityEventListener {
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                              SessionFactoryServiceRegistry serviceRegistry) {
+            serviceRegistry.getService(EventListenerRegistry.class).appendListeners(EventType.FLUSH_ENTITY, this);
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+
+        @Override
+        public void onFlushEntity(FlushEntityEvent event) {
+            if (!EVENT_TYPE.isEnabled()) {
+                return;
+            }
+            int[] dirty = event.getDirtyProperties();
+            if ((dirty != null && dirty.length > 0) || event.hasDirtyCollection()) {
+                dirtyEntities.get()[0]++;
+            }
+        }
+    }
+
+}
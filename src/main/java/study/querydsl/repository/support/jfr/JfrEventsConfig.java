@@ -0,0 +1,68 @@
+package study.querydsl.repository.support.jfr;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepositoryCustom;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Custom JFR events: {@code study.querydsl.RepositoryCall} for every call into a {@link MemberRepositoryCustom}
+ * implementation or {@link MemberJpaRepository}, and {@code study.querydsl.PersistenceFlush} for every flush.
+ * Both are registered but only cost anything while a recording has them enabled, e.g.
+ * {@code -XX:StartFlightRecording:settings=default,+study.querydsl.RepositoryCall#enabled=true}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "querydsl.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class JfrEventsConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static AbstractPointcutAdvisor repositoryCallEventAdvisor() {
+        return new AbstractPointcutAdvisor() {
+
+            private final Advice advice = new RepositoryCallInterceptor();
+
+            private final Pointcut pointcut = new StaticMethodMatcherPointcut() {
+                @Override
+                public boolean matches(Method method, Class<?> targetClass) {
+                    return Modifier.isPublic(method.getModifiers())
+                        && method.getDeclaringClass() != Object.class
+                        && (MemberRepositoryCustom.class.isAssignableFrom(targetClass)
+                        || MemberJpaRepository.class.isAssignableFrom(targetClass));
+                }
+            };
+
+            @Override
+            public Pointcut getPointcut() {
+                return pointcut;
+            }
+
+            @Override
+            public Advice getAdvice() {
+                return advice;
+            }
+        };
+    }
+
+    @Bean
+    public FlushEventRecorder.DirtyEntityCounter dirtyEntityCounter() {
+        return new FlushEventRecorder.DirtyEntityCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer flushEventHibernateProperties() {
+        return properties -> properties.put("hibernate.session.events.auto", FlushEventRecorder.class.getName());
+    }
+
+}
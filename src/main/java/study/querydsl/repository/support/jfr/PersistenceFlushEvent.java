@@ -0,0 +1,26 @@
+package study.querydsl.repository.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("study.querydsl.PersistenceFlush")
+@Label("Persistence Context Flush")
+@Description("One Hibernate flush: how many managed entities were dirty-checked and how many were dirty")
+@Category({"Querydsl", "Persistence"})
+@StackTrace(false)
+class PersistenceFlushEvent extends Event {
+
+    @Label("Entities Checked")
+    int entitiesChecked;
+
+    @Label("Entities Dirty")
+    int entitiesDirty;
+
+    @Label("Collections")
+    int collections;
+
+}
@@ -0,0 +1,37 @@
+package study.querydsl.repository.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("study.querydsl.RepositoryCall")
+@Label("Repository Call")
+@Description("One call into a member repository, with the statements it executed")
+@Category({"Querydsl", "Repository"})
+@StackTrace(false)
+class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Condition Shape")
+    @Description("QueryShape bits of the MemberSearchCondition argument: 1 username, 2 teamName, 4 ageGoe, 8 ageLoe; -1 without one")
+    int conditionShape;
+
+    @Label("Rows")
+    @Description("Elements returned, -1 when the result is not a collection, page or optional")
+    int rows;
+
+    @Label("SQL Count")
+    long sqlCount;
+
+    @Label("Failed")
+    boolean failed;
+
+}
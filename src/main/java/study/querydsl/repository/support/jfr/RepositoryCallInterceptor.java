@@ -0,0 +1,88 @@
+package study.querydsl.repository.support.jfr;
+
+import jdk.jfr.EventType;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.data.domain.Page;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.repository.adaptive.QueryShape;
+import study.querydsl.repository.support.StatementCounter;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Emits a {@link RepositoryCallEvent} around the outermost repository call on a thread; calls a repository
+ * makes into another repository, or through a second proxy, count towards the outer event. While the event
+ * is disabled this is one volatile read per call.
+ */
+class RepositoryCallInterceptor implements MethodInterceptor {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(RepositoryCallEvent.class);
+
+    private static final ThreadLocal<Boolean> inCall = new ThreadLocal<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!EVENT_TYPE.isEnabled() || inCall.get() != null) {
+            return invocation.proceed();
+        }
+
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        long statementsBefore = StatementCounter.current();
+        inCall.set(Boolean.TRUE);
+        event.begin();
+        Object result = null;
+        boolean failed = true;
+        try {
+            result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            inCall.remove();
+            if (event.shouldCommit()) {
+                event.repository = repositoryName(invocation);
+                event.method = invocation.getMethod().getName();
+                event.conditionShape = conditionShape(invocation.getArguments());
+                event.rows = rows(result);
+                event.sqlCount = StatementCounter.current() - statementsBefore;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private static String repositoryName(MethodInvocation invocation) {
+        Class<?> target = invocation.getThis() == null ? null : AopUtils.getTargetClass(invocation.getThis());
+        if (target == null || Proxy.isProxyClass(target)) {
+            return invocation.getMethod().getDeclaringClass().getSimpleName();
+        }
+        return target.getSimpleName();
+    }
+
+    private static int conditionShape(Object[] arguments) {
+        for (Object argument : arguments) {
+            if (argument instanceof MemberSearchCondition) {
+                return QueryShape.of((MemberSearchCondition) argument).bits();
+            }
+        }
+        return -1;
+    }
+
+    private static int rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Page) {
+            return ((Page<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+
+}
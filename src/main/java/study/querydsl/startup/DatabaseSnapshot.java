@@ -0,0 +1,234 @@
+package study.querydsl.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.invalidation.InvalidationBatch;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Saves the loaded in-memory H2 database to a compressed {@code SCRIPT} file and restores it on the next start,
+ * instead of generating the sample data again.
+ * <p>
+ * Next to the script a {@code .properties} file records its SHA-256, a fingerprint of the schema it was taken
+ * from (columns, sequences, indexes and constraints as Hibernate created them) and {@code data-version}. The
+ * snapshot is only used when all three still match: the file is intact, the entity mapping has not changed, and
+ * the seed data was not declared changed by raising {@code data-version}. Otherwise the data is generated and a
+ * new snapshot written. Restoring replaces every database object, sequences included, so it must run before
+ * anything is written; with {@code querydsl.startup.background-warm-up} the data is only loaded once the
+ * application is serving, so the snapshot is never restored then, only written.
+ * Enabled with {@code querydsl.snapshot.enabled}, stored at {@code querydsl.snapshot.path}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "querydsl.snapshot.enabled", havingValue = "true")
+public class DatabaseSnapshot {
+
+    private static final String FORMAT = "1";
+
+    private static final String SCHEMA_COLUMNS = "select table_name, column_name, data_type, is_nullable"
+        + " from information_schema.columns where table_schema = 'PUBLIC' order by table_name, ordinal_position";
+
+    private static final String SCHEMA_SEQUENCES = "select sequence_name, increment"
+        + " from information_schema.sequences where sequence_schema = 'PUBLIC' order by sequence_name";
+
+    // H2 suffixes generated index and constraint names with an internal object id that
+    // changes whenever a table is rebuilt, so the suffix is left out of the fingerprint
+    private static final String SCHEMA_INDEXES = "select table_name, regexp_replace(index_name, '_[0-9]+$', ''),"
+        + " column_name, ordinal_position, non_unique, index_type_name"
+        + " from information_schema.indexes where table_schema = 'PUBLIC' order by 1, 2, 4";
+
+    private static final String SCHEMA_CONSTRAINTS = "select table_name, regexp_replace(sql, '_[0-9]+\"', '\"')"
+        + " from information_schema.constraints where constraint_schema = 'PUBLIC' order by 1, 2";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final InvalidationPublisher invalidations;
+
+    private final Path file;
+
+    private final Path metadataFile;
+
+    private final String dataVersion;
+
+    private final boolean loadedWhileServing;
+
+    public DatabaseSnapshot(JdbcTemplate jdbcTemplate,
+                            InvalidationPublisher invalidations,
+                            @Value("${querydsl.snapshot.path:build/snapshot/querydsl.zip}") String path,
+                            @Value("${querydsl.snapshot.data-version:1}") String dataVersion,
+                            @Value("${querydsl.startup.background-warm-up:false}") boolean loadedWhileServing) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidations = invalidations;
+        this.file = Paths.get(path).toAbsolutePath();
+        this.metadataFile = file.resolveSibling(file.getFileName() + ".properties");
+        this.dataVersion = dataVersion;
+        this.loadedWhileServing = loadedWhileServing;
+    }
+
+    /**
+     * @return whether a valid snapshot was found and has replaced the database contents
+     */
+    public boolean restore() {
+        if (loadedWhileServing) {
+            // requests may already have written; dropping every object now would lose them or fail them
+            log.info("Not restoring database snapshot {}: the application is already serving requests", file);
+            return false;
+        }
+        String staleReason = staleReason();
+        if (staleReason != null) {
+            log.info("Not restoring database snapshot {}: {}", file, staleReason);
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("drop all objects");
+                    statement.execute("runscript from " + literal(file) + " compression zip");
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            // the schema is gone at this point, so there is nothing left to fall back to in this run
+            delete();
+            throw new IllegalStateException("Restoring database snapshot " + file + " failed; it was deleted", e);
+        }
+        // every row was replaced behind Hibernate's back, so whatever was cached or indexed from it is gone
+        invalidations.bump(InvalidationBatch.ALL);
+        log.info("Restored database snapshot {} in {} ms", file, (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    /**
+     * Writes the current database contents. The script is written beside the old one and moved over it, so a
+     * concurrent or interrupted save never leaves a snapshot that passes the checksum with the wrong contents.
+     */
+    public void save() {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(file.getParent());
+            Path scriptTemp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Path metadataTemp = Files.createTempFile(file.getParent(), metadataFile.getFileName().toString(), ".tmp");
+            Files.delete(scriptTemp);
+            jdbcTemplate.execute("script to " + literal(scriptTemp) + " compression zip");
+
+            Properties metadata = new Properties();
+            metadata.setProperty("format", FORMAT);
+            metadata.setProperty("schema", schemaFingerprint());
+            metadata.setProperty("data-version", dataVersion);
+            metadata.setProperty("checksum", sha256(scriptTemp));
+            try (OutputStream out = Files.newOutputStream(metadataTemp)) {
+                metadata.store(out, "querydsl database snapshot");
+            }
+
+            Files.move(scriptTemp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(metadataTemp, metadataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing database snapshot " + file + " failed", e);
+        }
+        log.info("Wrote database snapshot {} in {} ms", file, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return why the snapshot cannot be used, or {@code null} when it can
+     */
+    String staleReason() {
+        if (!Files.isRegularFile(file) || !Files.isRegularFile(metadataFile)) {
+            return "no snapshot";
+        }
+        Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(metadataFile)) {
+            metadata.load(in);
+            if (!FORMAT.equals(metadata.getProperty("format"))) {
+                return "unknown format " + metadata.getProperty("format");
+            }
+            if (!dataVersion.equals(metadata.getProperty("data-version"))) {
+                return "data version " + metadata.getProperty("data-version") + ", expected " + dataVersion;
+            }
+            if (!schemaFingerprint().equals(metadata.getProperty("schema"))) {
+                return "schema changed";
+            }
+            if (!sha256(file).equals(metadata.getProperty("checksum"))) {
+                return "checksum mismatch";
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return "unreadable (" + e.getMessage() + ")";
+        }
+        return null;
+    }
+
+    private String schemaFingerprint() {
+        MessageDigest digest = sha256Digest();
+        for (String query : new String[]{SCHEMA_COLUMNS, SCHEMA_SEQUENCES, SCHEMA_INDEXES, SCHEMA_CONSTRAINTS}) {
+            List<String> rows = jdbcTemplate.query(query, (rs, rowNum) -> {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                    row.append(rs.getString(i)).append('|');
+                }
+                return row.toString();
+            });
+            rows.forEach(row -> digest.update((row + '\n').getBytes(StandardCharsets.UTF_8)));
+        }
+        return hex(digest.digest());
+    }
+
+    private void delete() {
+        try {
+            Files.deleteIfExists(metadataFile);
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Deleting database snapshot {} failed", file, e);
+        }
+    }
+
+    private static String sha256(Path path) throws IOException {
+        MessageDigest digest = sha256Digest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static String literal(Path path) {
+        return "'" + path.toString().replace("'", "''") + "'";
+    }
+
+}
@@ -0,0 +1,29 @@
+package study.querydsl.startup;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * With {@code spring.main.lazy-initialization} (the {@code fast-start} profile) the web tier is still built
+ * before the port opens, while repositories, Hibernate and the data sources wait for their first use.
+ * Controllers must therefore reach the data layer through {@code @Lazy} injection points.
+ */
+@Configuration
+public class FastStartConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerWebTier() {
+        return (beanName, beanDefinition, beanType) ->
+            AnnotatedElementUtils.hasAnnotation(beanType, Controller.class)
+                || AnnotatedElementUtils.hasAnnotation(beanType, ControllerAdvice.class)
+                || WebMvcConfigurer.class.isAssignableFrom(beanType)
+                || HandlerInterceptor.class.isAssignableFrom(beanType);
+    }
+
+}
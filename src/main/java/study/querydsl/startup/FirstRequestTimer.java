@@ -0,0 +1,60 @@
+package study.querydsl.startup;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records how long after JVM start the application became ready and served its first real request
+ * ({@value #READY_METRIC} / {@value #FIRST_REQUEST_METRIC}, in milliseconds of JVM uptime).
+ */
+@Slf4j
+@Component
+public class FirstRequestTimer extends OncePerRequestFilter {
+
+    public static final String READY_METRIC = "querydsl.startup.ready";
+    public static final String FIRST_REQUEST_METRIC = "querydsl.startup.first-request";
+
+    private final AtomicBoolean served = new AtomicBoolean();
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public FirstRequestTimer(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        record(READY_METRIC, "Ready {} ms after JVM start");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        filterChain.doFilter(request, response);
+
+        if (!served.get() && request.getHeader(StartupWarmUp.WARM_UP_HEADER) == null && served.compareAndSet(false, true)) {
+            record(FIRST_REQUEST_METRIC, "First request served {} ms after JVM start");
+        }
+    }
+
+    private void record(String metric, String message) {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info(message, uptime);
+        meterRegistry.ifAvailable(registry -> Gauge.builder(metric, () -> uptime).baseUnit("milliseconds").register(registry));
+    }
+
+}
@@ -0,0 +1,93 @@
+package study.querydsl.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import study.querydsl.controller.InitMember;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Loads the local sample data and warms the search endpoints on a background thread once the application
+ * is ready, so the port opens without waiting for either.
+ * <p>
+ * The warm-up goes through HTTP on purpose: it initializes the dispatcher, the lazily created repositories,
+ * the Hibernate metamodel and query plan cache and the Querydsl {@code Q*} classes exactly as a real request
+ * would. Warm-up requests carry {@link #WARM_UP_HEADER} so they are not taken for the first real request.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "querydsl.startup.background-warm-up", havingValue = "true")
+public class StartupWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+
+    static final String WARM_UP_HEADER = "X-Warm-Up";
+
+    private static final List<String> WARM_UP_PATHS = Arrays.asList(
+        "/v1/members?teamName=TeamA&ageGoe=10",
+        "/v2/members?page=0&size=5",
+        "/v3/members?page=1&size=5&ageLoe=50");
+
+    private final ObjectProvider<InitMember> initMember;
+
+    private final boolean exitAfterWarmUp;
+
+    public StartupWarmUp(ObjectProvider<InitMember> initMember,
+                         @Value("${querydsl.startup.exit-after-warm-up:false}") boolean exitAfterWarmUp) {
+        this.initMember = initMember;
+        this.exitAfterWarmUp = exitAfterWarmUp;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        Thread thread = new Thread(() -> run(event.getApplicationContext()), "startup-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run(ConfigurableApplicationContext context) {
+        long start = System.nanoTime();
+        try {
+            initMember.ifAvailable(InitMember::load);
+            warmUp(((WebServerApplicationContext) context).getWebServer().getPort());
+            log.info("Background warm-up finished in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException | IOException e) {
+            log.warn("Background warm-up failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (exitAfterWarmUp) {
+            // training run for the AppCDS archive: the JVM writes the archive of everything loaded so far on exit
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private void warmUp(int port) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        for (String path : WARM_UP_PATHS) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(WARM_UP_HEADER, "true")
+                .timeout(Duration.ofSeconds(30))
+                .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 400) {
+                log.warn("Warm-up request {} answered {}", path, response.statusCode());
+            }
+        }
+    }
+
+}
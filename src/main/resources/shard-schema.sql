@@ -0,0 +1,15 @@
+create sequence if not exists shard_seq;
+
+create table if not exists team (
+    team_id bigint not null primary key,
+    name varchar(255)
+);
+
+create table if not exists member (
+    member_id bigint not null primary key,
+    username varchar(255),
+    age integer not null,
+    team_id bigint references team (team_id)
+);
+
+create index if not exists member_team_id on member (team_id);
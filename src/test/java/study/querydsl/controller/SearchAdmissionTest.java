@@ -0,0 +1,211 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.method.HandlerMethod;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "querydsl.admission.expensive-rows=5",
+    "querydsl.admission.max-unpaged-rows=20",
+    "querydsl.admission.statistics-ttl=0"
+})
+@AutoConfigureMockMvc
+@Transactional
+class SearchAdmissionTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 30; i++) {
+            em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void cheapSearchGoesStraightThrough() throws Exception {
+        double cheap = counted("cheap");
+
+        mockMvc.perform(get("/v1/members").param("username", "member1"))
+            .andExpect(status().isOk());
+        // 페이지는 크기만큼만 비싸다
+        mockMvc.perform(get("/v2/members").param("size", "5"))
+            .andExpect(status().isOk());
+
+        assertThat(counted("cheap")).isEqualTo(cheap + 2);
+    }
+
+    @Test
+    public void expensiveSearchTakesAPermit() throws Exception {
+        double admitted = counted("admitted");
+
+        mockMvc.perform(get("/v1/members").param("teamName", "TeamA"))
+            .andExpect(status().isOk());
+
+        assertThat(counted("admitted")).isEqualTo(admitted + 1);
+    }
+
+    @Test
+    public void unboundedUnpagedSearchIsRedirectedToStream() throws Exception {
+        mockMvc.perform(get("/v1/members?ageGoe=0"))
+            .andExpect(status().isSeeOther())
+            .andExpect(header().string("Location", "/v1/members/stream?ageGoe=0"));
+    }
+
+    @Test
+    public void streamWritesOneMemberPerLine() throws Exception {
+        double streamed = counted("streamed");
+
+        String body = mockMvc.perform(get("/v1/members/stream").param("ageGoe", "0"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.trim().split("\n");
+        assertThat(lines).hasSize(30);
+        assertThat(lines[0]).startsWith("{").contains("\"username\":\"member0\"").contains("\"teamName\":\"TeamA\"");
+        // 스트림은 비용 대신 동시 스트림 수로 제한한다
+        assertThat(counted("streamed")).isEqualTo(streamed + 1);
+    }
+
+    @Test
+    public void batchIsAdmittedByItsSummedRows() throws Exception {
+        double cheap = counted("cheap");
+        double admitted = counted("admitted");
+        double refused = counted("refused");
+
+        mockMvc.perform(post("/v1/members/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"username\":\"member1\"},{\"username\":\"member2\"}]"))
+            .andExpect(status().isOk());
+        mockMvc.perform(post("/v1/members/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"teamName\":\"TeamA\"}]"))
+            .andExpect(status().isOk());
+        // 조건 하나하나는 작아도 합치면 max-unpaged-rows 를 넘는다
+        mockMvc.perform(post("/v1/members/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"teamName\":\"TeamA\"},{\"teamName\":\"TeamB\"}]"))
+            .andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(post("/v1/members/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[{}]"))
+            .andExpect(status().isUnprocessableEntity());
+
+        assertThat(counted("cheap")).isEqualTo(cheap + 1);
+        assertThat(counted("admitted")).isEqualTo(admitted + 1);
+        assertThat(counted("refused")).isEqualTo(refused + 2);
+    }
+
+    @Test
+    public void streamsAreLimited() throws Exception {
+        SearchAdmissionInterceptor interceptor = new SearchAdmissionInterceptor(null, meterRegistry, true, 5, 20, 1, 1,
+            0, 1, "jpa");
+        HandlerMethod stream = new HandlerMethod(new Object() {
+            @SearchAdmission(SearchAdmission.Mode.STREAMING)
+            public void stream() {
+            }
+        }, "stream");
+        MockHttpServletRequest first = new MockHttpServletRequest();
+
+        assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), stream)).isTrue();
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), rejected, stream)).isFalse();
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+
+        // 끝난 스트림의 자리는 다음 스트림이 쓴다
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), stream, null);
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), stream)).isTrue();
+    }
+
+    @Test
+    public void bulkheadServesHigherPriorityFirst() throws Exception {
+        SearchBulkhead bulkhead = new SearchBulkhead(1, 2);
+        assertThat(bulkhead.acquire(0, 100, 0)).isTrue();
+
+        List<String> admitted = new CopyOnWriteArrayList<>();
+        Thread low = waitFor(bulkhead, 0, "low", admitted);
+        awaitQueued(bulkhead, 1);
+        Thread high = waitFor(bulkhead, 5, "high", admitted);
+        awaitQueued(bulkhead, 2);
+        // 큐가 가득 차면 기다리지 않고 거절한다
+        assertThat(bulkhead.acquire(9, 1, 1000)).isFalse();
+
+        bulkhead.release();
+        high.join(5000);
+        bulkhead.release();
+        low.join(5000);
+
+        assertThat(admitted).containsExactly("high", "low");
+    }
+
+    @Test
+    public void bulkheadGivesUpAfterTimeout() throws Exception {
+        SearchBulkhead bulkhead = new SearchBulkhead(1, 2);
+        assertThat(bulkhead.acquire(0, 100, 0)).isTrue();
+
+        assertThat(bulkhead.acquire(0, 100, 50)).isFalse();
+        assertThat(bulkhead.queued()).isZero();
+
+        bulkhead.release();
+        assertThat(bulkhead.acquire(0, 100, 0)).isTrue();
+    }
+
+    private static Thread waitFor(SearchBulkhead bulkhead, int priority, String name, List<String> admitted) {
+        Thread thread = new Thread(() -> {
+            try {
+                if (bulkhead.acquire(priority, 100, 5000)) {
+                    admitted.add(name);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitQueued(SearchBulkhead bulkhead, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.queued() < queued && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(bulkhead.queued()).isEqualTo(queued);
+    }
+
+    private double counted(String outcome) {
+        return meterRegistry.counter(SearchAdmissionInterceptor.METRIC, "outcome", outcome).count();
+    }
+
+}
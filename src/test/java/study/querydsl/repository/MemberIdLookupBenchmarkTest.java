@@ -0,0 +1,143 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 길이가 제각각인 id 목록 조회를 패딩 없는 IN 과 {@link MemberJpaRepository#findAllByIds} 로 반복하고
+ * Hibernate 쿼리 플랜 캐시 적중률과 소요 시간을 비교한다.
+ * <p>
+ * {@code ./gradlew benchmark} 로만 실행된다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "logging.level.org.hibernate.SQL=info",
+    "logging.level.org.hibernate.type=info",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"
+})
+class MemberIdLookupBenchmarkTest {
+
+    static final int ROWS = 50_000;
+    static final long FIRST_ID = 10_000_000L;
+    static final int LOOKUPS = 2_000;
+    static final int MAX_IDS = 300;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{FIRST_ID + i, "member" + i, i % 100});
+        }
+        jdbcTemplate.batchUpdate("insert into member (member_id, username, age) values (?, ?, ?)", rows);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void paddedVersusUnpadded() {
+        List<List<Long>> lookups = lookups();
+
+        Result unpadded = measure(lookups, ids -> queryFactory.selectFrom(member).where(member.id.in(ids)).fetch());
+        Result padded = measure(lookups, ids -> memberJpaRepository.findAllByIds(ids));
+
+        System.out.printf("%-10s %10s %10s %10s %10s%n", "mode", "hits", "misses", "hit rate", "time(ms)");
+        unpadded.print("unpadded");
+        padded.print("padded");
+        assertThat(padded.hitRate()).isGreaterThan(unpadded.hitRate());
+    }
+
+    private List<List<Long>> lookups() {
+        Random random = new Random(42);
+        List<List<Long>> lookups = new ArrayList<>(LOOKUPS);
+        for (int i = 0; i < LOOKUPS; i++) {
+            int size = 1 + random.nextInt(MAX_IDS);
+            List<Long> ids = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                ids.add(FIRST_ID + random.nextInt(ROWS));
+            }
+            lookups.add(ids);
+        }
+        return lookups;
+    }
+
+    /**
+     * 플랜 캐시를 비운 뒤 조회마다 새 트랜잭션(새 영속성 컨텍스트)에서 실행한다.
+     */
+    private Result measure(List<List<Long>> lookups, Function<List<Long>, List<Member>> lookup) {
+        SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        emf.unwrap(SessionFactoryImplementor.class).getQueryPlanCache().cleanup();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        long start = System.nanoTime();
+        for (List<Long> ids : lookups) {
+            transactionTemplate.execute(status -> lookup.apply(ids));
+        }
+
+        Result result = new Result();
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        result.hits = statistics.getQueryPlanCacheHitCount();
+        result.misses = statistics.getQueryPlanCacheMissCount();
+        return result;
+    }
+
+    static class Result {
+
+        long hits;
+        long misses;
+        long millis;
+
+        double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        void print(String mode) {
+            System.out.printf("%-10s %10d %10d %9.1f%% %10d%n", mode, hits, misses, hitRate() * 100, millis);
+        }
+    }
+}
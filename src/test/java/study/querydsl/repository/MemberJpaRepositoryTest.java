@@ -2,18 +2,31 @@ package study.querydsl.repository;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import study.querydsl.controller.dto.MemberSearchCondition;
 import study.querydsl.controller.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CapturingStatementInspector;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,6 +41,15 @@ class MemberJpaRepositoryTest {
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     @Test
     public void BasicTest() {
         Member member = new Member("member1", 10);
@@ -43,6 +65,33 @@ class MemberJpaRepositoryTest {
         assertThat(result2).containsExactly(member);
     }
 
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findByIdLoadsWritableMember() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long id = transactionTemplate.execute(status -> {
+            Member member = new Member("writableMember", 10);
+            em.persist(member);
+            return member.getId();
+        });
+
+        // open-in-view 처럼 요청 내내 열린 영속성 컨텍스트에서 트랜잭션 없이 읽고 고친 뒤 다음 트랜잭션에서 반영한다
+        EntityManager requestEm = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(requestEm));
+        try {
+            memberJpaRepository.findById(id).get().addAge(5);
+            transactionTemplate.executeWithoutResult(status -> {
+            });
+
+            assertThat(jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class, id))
+                .isEqualTo(15);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            requestEm.close();
+            jdbcTemplate.update("delete from member where member_id = ?", id);
+        }
+    }
+
     @Test
     public void searchTest() {
         Team teamA = new Team("TeamA");
@@ -71,6 +120,144 @@ class MemberJpaRepositoryTest {
         assertThat(result).extracting("username").containsExactly("Member4");
     }
 
+    @Test
+    public void readOnlyQueryTest() {
+        Member member = new Member("member1", 10);
+        memberJpaRepository.save(member);
+        em.flush();
+        em.clear();
+
+        Member findMember = memberJpaRepository.findByUsername("member1").get(0);
+        assertThat(em.unwrap(Session.class).isReadOnly(findMember)).isTrue();
+
+        // 스냅샷이 없으니 변경 감지 대상이 아니다
+        findMember.addAge(1);
+        em.flush();
+        em.clear();
+
+        assertThat(memberJpaRepository.findById(member.getId()).get().getAge()).isEqualTo(10);
+    }
+
+    @Test
+    public void findAllByIdsTest() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        Member member3 = new Member("member3", 30);
+        memberJpaRepository.save(member1);
+        memberJpaRepository.save(member2);
+        memberJpaRepository.save(member3);
+        em.flush();
+        em.clear();
+        CapturingStatementInspector.clear();
+
+        // 요청 순서대로, 중복과 없는 id 는 빼고 돌려준다
+        List<Member> result = memberJpaRepository.findAllByIds(
+            Arrays.asList(member3.getId(), -1L, member1.getId(), member3.getId(), member2.getId()));
+
+        assertThat(result).extracting("username").containsExactly("member3", "member1", "member2");
+        // id 4개 -> 파라미터 4개, 3개였어도 4개로 채운다
+        List<String> statements = CapturingStatementInspector.statements();
+        assertThat(statements).hasSize(1);
+        assertThat(statements.get(0).chars().filter(c -> c == '?').count()).isEqualTo(4);
+    }
+
+    @Test
+    public void forEachChunkTest() {
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 5; i++) {
+            memberJpaRepository.save(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        List<List<String>> chunks = new ArrayList<>();
+        long processed = memberJpaRepository.forEachChunk(new MemberSearchCondition(), 2, chunk -> {
+            chunks.add(chunk.stream().map(Member::getUsername).collect(Collectors.toList()));
+            chunk.forEach(m -> m.addAge(1));
+        });
+
+        assertThat(processed).isEqualTo(5);
+        assertThat(chunks).containsExactly(
+            Arrays.asList("member1", "member2"),
+            Arrays.asList("member3", "member4"),
+            Arrays.asList("member5"));
+        // 청크마다 flush 후 영속성 컨텍스트를 비운다
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+        assertThat(memberJpaRepository.findByUsername("member5").get(0).getAge()).isEqualTo(51);
+    }
+
+    @Test
+    public void readChunksTest() {
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 3; i++) {
+            memberJpaRepository.save(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        List<String> seen = new ArrayList<>();
+        long processed = memberJpaRepository.readChunks(new MemberSearchCondition(), 2, chunk -> chunk.forEach(m -> {
+            assertThat(em.contains(m)).isFalse();
+            seen.add(m.getUsername() + "/" + m.getTeam().getName());
+            m.addAge(1);
+        }));
+
+        assertThat(processed).isEqualTo(3);
+        assertThat(seen).containsExactly("member1/TeamA", "member2/TeamA", "member3/TeamA");
+        // 분리된 엔티티라 변경이 기록되지 않는다
+        assertThat(memberJpaRepository.findByUsername("member3").get(0).getAge()).isEqualTo(30);
+    }
+
+    @Test
+    public void readChunkTest() {
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 3; i++) {
+            memberJpaRepository.save(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        List<Member> first = memberJpaRepository.readChunk(new MemberSearchCondition(), null, 2);
+        // 마지막 id 다음부터 이어서 읽는다
+        List<Member> second = memberJpaRepository.readChunk(new MemberSearchCondition(),
+            first.get(first.size() - 1).getId(), 2);
+
+        assertThat(first).extracting("username").containsExactly("member1", "member2");
+        assertThat(second).extracting("username").containsExactly("member3");
+        assertThat(second.get(0).getTeam().getName()).isEqualTo("TeamA");
+        assertThat(em.contains(second.get(0))).isFalse();
+    }
+
+    @Test
+    public void forEachChunkParallelTest() {
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 10; i++) {
+            memberJpaRepository.save(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : null));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamA");
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+        long processed = memberJpaRepository.forEachChunk(condition, 2, 3, chunk ->
+            chunk.forEach(m -> seen.add(m.getUsername() + "/" + m.getTeam().getName())));
+
+        assertThat(processed).isEqualTo(5);
+        assertThat(seen).containsExactlyInAnyOrder(
+            "member2/TeamA", "member4/TeamA", "member6/TeamA", "member8/TeamA", "member10/TeamA");
+    }
+
+    @Test
+    public void padToPowerOfTwoTest() {
+        assertThat(MemberJpaRepository.padToPowerOfTwo(Arrays.asList(1L))).containsExactly(1L);
+        assertThat(MemberJpaRepository.padToPowerOfTwo(Arrays.asList(1L, 2L, 3L))).containsExactly(1L, 2L, 3L, 3L);
+        assertThat(MemberJpaRepository.padToPowerOfTwo(Arrays.asList(1L, 2L, 3L, 4L, 5L))).hasSize(8);
+    }
 
 
 }
@@ -0,0 +1,134 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 10만 건 엔티티 조회 후 flush 까지의 비용을 일반 조회와 읽기 전용 조회로 비교한다.
+ * <p>
+ * {@code ./gradlew benchmark} 로만 실행된다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "logging.level.org.hibernate.SQL=info",
+    "logging.level.org.hibernate.type=info"
+})
+class MemberReadOnlyBenchmarkTest {
+
+    static final int ROWS = 100_000;
+    static final long FIRST_ID = 10_000_000L;
+    static final int ROUNDS = 5;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{FIRST_ID + i, "member" + i, i % 100});
+        }
+        jdbcTemplate.batchUpdate("insert into member (member_id, username, age) values (?, ?, ?)", rows);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void readOnlyVersusManaged() {
+        Result managed = measure(() -> queryFactory.selectFrom(member).fetch());
+        Result readOnly = measure(() -> memberJpaRepository.findAll());
+
+        System.out.printf("%-10s %12s %12s %12s%n", "mode", "load(ms)", "flush(ms)", "heap(MB)");
+        managed.print("managed");
+        readOnly.print("readOnly");
+    }
+
+    /**
+     * 읽기-쓰기 트랜잭션 안에서 조회하고 flush 한다. 라운드별 최솟값을 쓴다.
+     */
+    private Result measure(Supplier<List<Member>> query) {
+        Result best = new Result();
+        for (int round = 0; round < ROUNDS; round++) {
+            Result result = transactionTemplate.execute(status -> {
+                long baseline = usedHeap();
+
+                long start = System.nanoTime();
+                List<Member> members = query.get();
+                long loaded = System.nanoTime();
+                em.flush();
+                long flushed = System.nanoTime();
+
+                assertThat(members).hasSizeGreaterThanOrEqualTo(ROWS);
+                Result current = new Result();
+                current.loadMillis = (loaded - start) / 1_000_000;
+                current.flushMillis = (flushed - loaded) / 1_000_000;
+                // 영속성 컨텍스트가 살아 있는 동안의 힙 사용량 (엔티티 + 스냅샷)
+                current.heapBytes = usedHeap() - baseline;
+                em.clear();
+                return current;
+            });
+            best.keepMin(result);
+        }
+        return best;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static class Result {
+
+        long loadMillis = Long.MAX_VALUE;
+        long flushMillis = Long.MAX_VALUE;
+        long heapBytes = Long.MAX_VALUE;
+
+        void keepMin(Result other) {
+            loadMillis = Math.min(loadMillis, other.loadMillis);
+            flushMillis = Math.min(flushMillis, other.flushMillis);
+            heapBytes = Math.min(heapBytes, other.heapBytes);
+        }
+
+        void print(String mode) {
+            System.out.printf("%-10s %12d %12d %12.1f%n", mode, loadMillis, flushMillis, heapBytes / (1024.0 * 1024.0));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import study.querydsl.controller.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberSearchCostEstimatorTest {
+
+    @Test
+    public void statisticsAreLoadedOnceAtColdStart() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:estimator;DB_CLOSE_DELAY=-1", "sa", "");
+        AtomicInteger loads = new AtomicInteger();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource) {
+            @Override
+            public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
+                loads.incrementAndGet();
+                try {
+                    // 느린 통계 쿼리 동안 다른 호출이 몰려오게 한다
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.queryForObject(sql, rowMapper);
+            }
+        };
+        jdbcTemplate.execute("create table if not exists team (team_id bigint)");
+        jdbcTemplate.execute("create table if not exists member (member_id bigint, age int)");
+        jdbcTemplate.execute("insert into member values (1, 10), (2, 20)");
+        MemberSearchCostEstimator estimator = new MemberSearchCostEstimator(jdbcTemplate, null, 60_000);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> estimates = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                estimates.add(pool.submit(() -> {
+                    start.await();
+                    return estimator.estimateRows(new MemberSearchCondition());
+                }));
+            }
+            start.countDown();
+            for (Future<Long> estimate : estimates) {
+                assertThat(estimate.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+            }
+        } finally {
+            pool.shutdownNow();
+            jdbcTemplate.execute("drop table member");
+            jdbcTemplate.execute("drop table team");
+        }
+
+        // 처음 통계가 없을 때도 한 호출만 읽고 나머지는 기다린다
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,153 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.controller.dto.QMemberTeamDto;
+import study.querydsl.entity.QMember;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀 집계와 비교하는 조회를 상관 서브쿼리 버전과 윈도우 함수 버전으로 비교한다.
+ * <p>
+ * {@code ./gradlew benchmark} 로만 실행된다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "logging.level.org.hibernate.SQL=info",
+    "logging.level.org.hibernate.type=info"
+})
+class MemberWindowBenchmarkTest {
+
+    static final int TEAMS = 500;
+    static final int MEMBERS_PER_TEAM = 100;
+    static final long FIRST_ID = 10_000_000L;
+    static final int WARMUP = 2;
+    static final int ROUNDS = 5;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberWindowRepository memberWindowRepository;
+
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        List<Object[]> teams = new ArrayList<>();
+        List<Object[]> members = new ArrayList<>();
+        long memberId = FIRST_ID;
+        for (int t = 0; t < TEAMS; t++) {
+            long teamId = FIRST_ID + t;
+            teams.add(new Object[]{teamId, "team" + t});
+            for (int m = 0; m < MEMBERS_PER_TEAM; m++) {
+                members.add(new Object[]{memberId, "member" + memberId, (int) ((memberId * 31) % 80), teamId});
+                memberId++;
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into team (team_id, name) values (?, ?)", teams);
+        jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", members);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from team where team_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void windowVersusSubQuery() {
+        QMember memberSub = new QMember("memberSub");
+
+        compare("aboveTeamAvg",
+            () -> queryFactory
+                .select(memberTeamDto())
+                .from(member)
+                .join(member.team, team)
+                .where(member.age.gt(
+                    JPAExpressions.select(memberSub.age.avg()).from(memberSub).where(memberSub.team.eq(member.team))))
+                .fetch(),
+            () -> memberWindowRepository.findAboveTeamAverageAge());
+
+        compare("oldestPerTeam",
+            () -> queryFactory
+                .select(memberTeamDto())
+                .from(member)
+                .join(member.team, team)
+                .where(member.age.eq(
+                    JPAExpressions.select(memberSub.age.max()).from(memberSub).where(memberSub.team.eq(member.team))))
+                .fetch(),
+            () -> memberWindowRepository.findOldestPerTeam());
+
+        compare("ageRankInTeam",
+            () -> queryFactory
+                .select(member.id, member.username, member.age, team.id, team.name,
+                    JPAExpressions.select(memberSub.count()).from(memberSub)
+                        .where(memberSub.team.eq(member.team), memberSub.age.gt(member.age)))
+                .from(member)
+                .join(member.team, team)
+                .fetch(),
+            () -> memberWindowRepository.findAgeRankInTeam());
+    }
+
+    private static QMemberTeamDto memberTeamDto() {
+        return new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name);
+    }
+
+    private void compare(String name, Supplier<List<?>> subQuery, Supplier<List<?>> window) {
+        long[] subQueryMillis = run(subQuery);
+        long[] windowMillis = run(window);
+        int subQueryRows = transactionTemplate.execute(status -> subQuery.get().size());
+        int windowRows = transactionTemplate.execute(status -> window.get().size());
+
+        assertThat(windowRows).isEqualTo(subQueryRows);
+        System.out.printf("%-14s rows=%-6d subQuery median=%5dms  window median=%5dms%n",
+            name, windowRows, median(subQueryMillis), median(windowMillis));
+    }
+
+    private long[] run(Supplier<List<?>> query) {
+        long[] millis = new long[ROUNDS];
+        for (int round = -WARMUP; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> query.get());
+            if (round >= 0) {
+                millis[round] = (System.nanoTime() - start) / 1_000_000;
+            }
+        }
+        return millis;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+}
@@ -0,0 +1,86 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.controller.dto.MemberAgeRankDto;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Transactional
+class MemberWindowRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberWindowRepository memberWindowRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+        em.persist(new Member("member4", 30, teamA));
+        em.persist(new Member("member5", 40, teamB));
+        em.persist(new Member("member6", 50, teamB));
+        em.persist(new Member("member7", 99));
+
+        // 네이티브 SQL 이라 flush 된 상태만 보인다
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void aboveTeamAverageAge() {
+        List<MemberTeamDto> result = memberWindowRepository.findAboveTeamAverageAge();
+
+        // teamA 평균 22.5, teamB 평균 45
+        assertThat(result).extracting("username", "teamName")
+            .containsExactly(
+                tuple("member3", "teamA"),
+                tuple("member4", "teamA"),
+                tuple("member6", "teamB"));
+    }
+
+    @Test
+    public void oldestPerTeam() {
+        List<MemberTeamDto> result = memberWindowRepository.findOldestPerTeam();
+
+        assertThat(result).extracting("username", "age")
+            .containsExactly(
+                tuple("member3", 30),
+                tuple("member4", 30),
+                tuple("member6", 50));
+    }
+
+    @Test
+    public void ageRankInTeam() {
+        List<MemberAgeRankDto> result = memberWindowRepository.findAgeRankInTeam();
+
+        assertThat(result).extracting("username", "ageRank")
+            .containsExactly(
+                tuple("member3", 1L),
+                tuple("member4", 1L),
+                tuple("member2", 3L),
+                tuple("member1", 4L),
+                tuple("member6", 1L),
+                tuple("member5", 2L));
+    }
+
+}
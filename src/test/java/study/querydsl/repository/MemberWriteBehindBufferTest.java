@@ -0,0 +1,189 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class MemberWriteBehindBufferTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    InvalidationPublisher invalidations;
+
+    @Autowired
+    MemberWriteBehindBuffer buffer;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate transactionTemplate;
+
+    Long memberId;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("member1", 10);
+            em.persist(member);
+            return member.getId();
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        buffer.flush();
+        jdbcTemplate.update("delete from member where member_id = ?", memberId);
+    }
+
+    @Test
+    public void updatesToSameRowAreMerged() {
+        buffer.addAge(memberId, 1);
+        buffer.addAge(memberId, 1);
+        buffer.changeUsername(memberId, "renamed");
+        buffer.addAge(memberId, 1);
+
+        assertThat(buffer.pendingRows()).isEqualTo(1);
+        assertThat(buffer.flush()).isEqualTo(1);
+
+        assertThat(age()).isEqualTo(13);
+        assertThat(username()).isEqualTo("renamed");
+        assertThat(buffer.pendingRows()).isZero();
+    }
+
+    @Test
+    public void findByIdReadsPendingWrites() {
+        buffer.addAge(memberId, 5);
+        buffer.changeUsername(memberId, "renamed");
+
+        Member found = transactionTemplate.execute(status -> memberJpaRepository.findById(memberId).get());
+
+        assertThat(found.getAge()).isEqualTo(15);
+        assertThat(found.getUsername()).isEqualTo("renamed");
+        // 읽기 전에 해당 회원의 대기 중인 변경이 먼저 기록된다
+        assertThat(age()).isEqualTo(15);
+        assertThat(buffer.pendingRows()).isZero();
+    }
+
+    @Test
+    public void findByIdKeepsMemberManaged() {
+        buffer.addAge(memberId, 5);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Member found = memberJpaRepository.findById(memberId).get();
+            assertThat(em.contains(found)).isTrue();
+            found.changeUsername("renamedInTx");
+        });
+
+        // 반환된 엔티티의 변경도, 버퍼에 있던 변경도 모두 반영된다
+        assertThat(age()).isEqualTo(15);
+        assertThat(username()).isEqualTo("renamedInTx");
+    }
+
+    @Test
+    public void findByIdRefreshesMemberAlreadyInPersistenceContext() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member loaded = em.find(Member.class, memberId);
+            buffer.addAge(memberId, 5);
+
+            Member found = memberJpaRepository.findById(memberId).get();
+
+            assertThat(found).isSameAs(loaded);
+            assertThat(found.getAge()).isEqualTo(15);
+        });
+    }
+
+    @Test
+    public void findByIdWritesOnCallerConnection() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // 호출한 트랜잭션이 이미 잠근 행도 같은 커넥션으로 쓰므로 기다리지 않는다
+            jdbcTemplate.update("update member set username = 'lockedInTx' where member_id = ?", memberId);
+            buffer.addAge(memberId, 5);
+
+            assertThat(memberJpaRepository.findById(memberId).get().getAge()).isEqualTo(15);
+        });
+
+        assertThat(age()).isEqualTo(15);
+        assertThat(username()).isEqualTo("lockedInTx");
+    }
+
+    @Test
+    public void rolledBackWriteIsBufferedAgain() {
+        buffer.addAge(memberId, 5);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            memberJpaRepository.findById(memberId);
+            status.setRollbackOnly();
+        });
+
+        // 롤백된 트랜잭션과 함께 사라지지 않고 다시 대기한다
+        assertThat(age()).isEqualTo(10);
+        assertThat(buffer.pendingRows()).isEqualTo(1);
+        buffer.flush();
+        assertThat(age()).isEqualTo(15);
+    }
+
+    @Test
+    public void memberWithoutIdIsRefused() {
+        assertThatThrownBy(() -> buffer.addAge(null, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> buffer.changeUsername(null, "renamed")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void sizeTriggerFlushesInBackground() throws Exception {
+        MemberWriteBehindBuffer small = new MemberWriteBehindBuffer(jdbcTemplate, transactionManager, invalidations, 1, 60_000, 4);
+        try {
+            small.addAge(memberId, 2);
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (small.pendingRows() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(50);
+
+            assertThat(age()).isEqualTo(12);
+        } finally {
+            small.destroy();
+        }
+    }
+
+    @Test
+    public void shutdownFlushesBufferedUpdates() {
+        MemberWriteBehindBuffer local = new MemberWriteBehindBuffer(jdbcTemplate, transactionManager, invalidations, 1000, 60_000, 4);
+        local.addAge(memberId, 3);
+
+        local.destroy();
+
+        assertThat(age()).isEqualTo(13);
+    }
+
+    private int age() {
+        return jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class, memberId);
+    }
+
+    private String username() {
+        return jdbcTemplate.queryForObject("select username from member where member_id = ?", String.class, memberId);
+    }
+
+}
@@ -0,0 +1,143 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.repository.support.CapturingStatementInspector;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 백그라운드 스레드는 커밋된 데이터만 볼 수 있으므로 @Transactional 없이 직접 넣고 지운다
+@SpringBootTest(properties = "querydsl.prefetch.enabled=true")
+class PagePrefetcherTest {
+
+    private static final long TEAM_ID = 10_000_000L;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    TeamNameCache teamNameCache;
+
+    @Autowired
+    PagePrefetcher pagePrefetcher;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    MemberSearchCondition condition;
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into team (team_id, name) values (?, ?)", TEAM_ID, "PrefetchTeam");
+        for (int i = 1; i <= 5; i++) {
+            jdbcTemplate.update("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)",
+                TEAM_ID + i, "member" + i, i * 10, TEAM_ID);
+        }
+        teamNameCache.invalidate();
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("PrefetchTeam");
+    }
+
+    @AfterEach
+    public void after() {
+        pagePrefetcher.clear();
+        jdbcTemplate.update("delete from member where team_id = ?", TEAM_ID);
+        jdbcTemplate.update("delete from team where team_id = ?", TEAM_ID);
+        teamNameCache.invalidate();
+    }
+
+    @Test
+    public void nextPageIsServedFromPrefetch() throws Exception {
+        double hits = count("hit");
+
+        Page<MemberTeamDto> first = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+        awaitPrefetch();
+        CapturingStatementInspector.clear();
+
+        Page<MemberTeamDto> second = memberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+        assertThat(second.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(second.getTotalElements()).isEqualTo(5);
+        assertThat(CapturingStatementInspector.statements()).isEmpty();
+        assertThat(count("hit")).isEqualTo(hits + 1);
+    }
+
+    @Test
+    public void prefetchIsShedWhenPoolIsBusy() throws Exception {
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 2));
+        awaitPrefetch();
+        double shed = count("shed");
+
+        // 풀의 절반 이상을 점유하면 다음 페이지 선조회는 건너뛴다
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < 5; i++) {
+                held.add(dataSource.getConnection());
+            }
+            memberRepository.searchPageSimple(condition, PageRequest.of(1, 2));
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+
+        assertThat(count("shed")).isEqualTo(shed + 1);
+        assertThat(pagePrefetcher.ready()).isZero();
+    }
+
+    @Test
+    public void writingTransactionSkipsPrefetchedPage() throws Exception {
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+        awaitPrefetch();
+        double bypassed = count("bypassed");
+
+        // 쓰기 트랜잭션은 자기 변경이 빠진 선조회 페이지 대신 직접 조회한다
+        Page<MemberTeamDto> second = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.update("delete from member where member_id = ?", TEAM_ID + 3);
+            status.setRollbackOnly();
+            return memberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+        });
+
+        assertThat(second.getContent()).extracting("username").containsExactly("member4", "member5");
+        assertThat(count("bypassed")).isEqualTo(bypassed + 1);
+    }
+
+    private void awaitPrefetch() throws InterruptedException {
+        for (int i = 0; i < 100 && pagePrefetcher.ready() == 0; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(pagePrefetcher.ready()).isEqualTo(1);
+    }
+
+    private double count(String event) {
+        return meterRegistry.counter(PagePrefetcher.METRIC, "event", event).count();
+    }
+
+}
@@ -0,0 +1,121 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.controller.dto.TeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Transactional
+class TeamMemberCountTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    TeamMemberCountReconciler reconciler;
+
+    @Test
+    public void countFollowsInsertChangeTeamAndDelete() {
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+
+        assertThat(memberCount(teamA)).isEqualTo(2);
+
+        member1.changeTeam(teamB);
+        em.flush();
+        assertThat(memberCount(teamA)).isEqualTo(1);
+        assertThat(memberCount(teamB)).isEqualTo(1);
+
+        em.remove(member1);
+        em.flush();
+        assertThat(memberCount(teamB)).isZero();
+    }
+
+    @Test
+    public void bulkDeleteIsCorrectedByRecount() {
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+
+        // 벌크 연산은 리스너를 거치지 않으므로 직접 다시 센다
+        em.createQuery("delete from Member m where m.age > 15").executeUpdate();
+        assertThat(memberCount(teamA)).isEqualTo(2);
+
+        teamRepository.recountMembers(Collections.singletonList(teamA.getId()));
+        assertThat(memberCount(teamA)).isEqualTo(1);
+    }
+
+    @Test
+    public void teamsAreSortableBySize() {
+        Team small = new Team("small");
+        Team large = new Team("large");
+        em.persist(small);
+        em.persist(large);
+        em.persist(new Member("member1", 10, small));
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("member" + (i + 2), 20, large));
+        }
+        em.flush();
+        em.clear();
+
+        Page<TeamDto> page = teamRepository.findTeams(PageRequest.of(0, 10, Sort.by("memberCount").descending()));
+
+        assertThat(page.getContent()).extracting("name", "memberCount")
+            .containsExactly(tuple("large", 3L), tuple("small", 1L));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reconcilerFixesDrift() {
+        long teamId = 10_000_000L;
+        jdbcTemplate.update("insert into team (team_id, name) values (?, ?)", teamId, "drifted");
+        try {
+            for (int i = 1; i <= 3; i++) {
+                jdbcTemplate.update("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)",
+                    teamId + i, "member" + i, 10, teamId);
+            }
+            assertThat(jdbcTemplate.queryForObject("select member_count from team where team_id = ?", Long.class, teamId)).isZero();
+
+            assertThat(reconciler.reconcile()).isGreaterThanOrEqualTo(1);
+            assertThat(jdbcTemplate.queryForObject("select member_count from team where team_id = ?", Long.class, teamId)).isEqualTo(3);
+            assertThat(reconciler.reconcile()).isZero();
+        } finally {
+            jdbcTemplate.update("delete from member where team_id = ?", teamId);
+            jdbcTemplate.update("delete from team where team_id = ?", teamId);
+        }
+    }
+
+    private long memberCount(Team team) {
+        return jdbcTemplate.queryForObject("select member_count from team where team_id = ?", Long.class, team.getId());
+    }
+
+}
@@ -0,0 +1,167 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+import study.querydsl.repository.support.CapturingStatementInspector;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 캐시에는 커밋된 팀만 올라가므로 @Transactional 없이 직접 커밋하고 지운다
+@SpringBootTest
+class TeamNameCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamNameCache teamNameCache;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    InvalidationPublisher invalidations;
+
+    TransactionTemplate transactionTemplate;
+
+    Team teamA;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            teamA = new Team("CacheTeamA");
+            em.persist(teamA);
+            em.persist(new Member("cacheMember1", 10, teamA));
+            em.persist(new Member("cacheMember2", 20, teamA));
+            em.persist(new Member("cacheMember3", 30));
+        });
+        CapturingStatementInspector.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member where username like 'cacheMember%'");
+        jdbcTemplate.update("delete from team where name like 'CacheTeam%'");
+        teamNameCache.invalidate();
+    }
+
+    @Test
+    public void resolvedNameIsCached() {
+        assertThat(teamNameCache.idsOf("CacheTeamA")).containsExactly(teamA.getId());
+        assertThat(teamNameCache.idsOf("CacheTeamA")).containsExactly(teamA.getId());
+
+        assertThat(CapturingStatementInspector.statements()).hasSize(1);
+    }
+
+    @Test
+    public void searchFiltersOnTeamId() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("CacheTeamA");
+
+        List<Member> result = memberJpaRepository.searchMember(condition);
+
+        assertThat(result).extracting("username").containsExactly("cacheMember1", "cacheMember2");
+        List<String> statements = CapturingStatementInspector.statements();
+        assertThat(statements.get(statements.size() - 1)).doesNotContain("join").contains("team_id");
+    }
+
+    @Test
+    public void unknownTeamSkipsDatabase() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("CacheTeamNone");
+
+        assertThat(memberRepository.search(condition)).isEmpty();
+        CapturingStatementInspector.clear();
+
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isZero();
+        assertThat(CapturingStatementInspector.statements()).isEmpty();
+    }
+
+    @Test
+    public void persistingTeamInvalidates() {
+        assertThat(teamNameCache.idsOf("CacheTeamB")).isEmpty();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("CacheTeamB");
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamB = new Team("CacheTeamB");
+            em.persist(teamB);
+            em.persist(new Member("cacheMember4", 40, teamB));
+
+            // 팀을 바꾼 트랜잭션은 캐시 대신 자기 변경을 본다
+            assertThat(memberRepository.search(condition)).extracting("username").containsExactly("cacheMember4");
+        });
+
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("cacheMember4");
+    }
+
+    @Test
+    public void teamsSharingNameAreAllMatched() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team otherTeamA = new Team("CacheTeamA");
+            em.persist(otherTeamA);
+            em.persist(new Member("cacheMember4", 40, otherTeamA));
+        });
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("CacheTeamA");
+        assertThat(memberRepository.search(condition)).extracting("username")
+            .containsExactlyInAnyOrder("cacheMember1", "cacheMember2", "cacheMember4");
+    }
+
+    @Test
+    public void uncommittedTeamIsNotCached() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamC = new Team("CacheTeamC");
+            em.persist(teamC);
+            assertThat(teamNameCache.idsOf("CacheTeamC")).containsExactly(teamC.getId());
+            status.setRollbackOnly();
+        });
+
+        // 롤백된 팀의 id가 캐시에 남지 않는다
+        assertThat(teamNameCache.idsOf("CacheTeamC")).isEmpty();
+    }
+
+    @Test
+    public void teamWrittenPastTheSessionIsNotCached() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("insert into team (team_id, name, member_count) values (10000000, 'CacheTeamD', 0)");
+            invalidations.changed(Team.class, 10_000_000L);
+            // 호출한 트랜잭션의 커넥션으로 읽으므로 자기 변경을 보지만, 커밋되지 않은 id를 캐시에 담지는 않는다
+            assertThat(teamNameCache.idsOf("CacheTeamD")).containsExactly(10_000_000L);
+            status.setRollbackOnly();
+        });
+
+        assertThat(teamNameCache.idsOf("CacheTeamD")).isEmpty();
+    }
+
+}
@@ -0,0 +1,182 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.invalidation.InvalidationBatch;
+import study.querydsl.repository.invalidation.InvalidationBus;
+import study.querydsl.repository.invalidation.LoopbackInvalidationBus;
+import study.querydsl.repository.support.BloomFilter;
+import study.querydsl.repository.support.StatementCounter;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+// 커밋된 데이터로 필터를 만들어야 하므로 @Transactional 없이 직접 커밋하고 지운다
+@SpringBootTest(properties = {
+    "querydsl.username-filter.enabled=true",
+    "querydsl.username-filter.rebuild-interval=0"
+})
+class UsernameFilterTest {
+
+    private static final long MEMBER_ID = 10_000_000L;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    UsernameFilter usernameFilter;
+
+    @Autowired
+    InvalidationBus invalidationBus;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("FilterTeam");
+            em.persist(team);
+            em.persist(new Member("filterMember1", 10, team));
+            em.persist(new Member("filterMember2", 20, team));
+        });
+        usernameFilter.rebuild();
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member where username like 'filter%' or username like 'peer%'");
+        jdbcTemplate.update("delete from team where name = 'FilterTeam'");
+    }
+
+    @Test
+    public void unknownUsernameSkipsTheQuery() {
+        double skipped = counted("skipped");
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("nobody");
+        long before = StatementCounter.current();
+
+        assertThat(memberJpaRepository.findByUsername("nobody")).isEmpty();
+        assertThat(memberRepository.findByUsername("nobody")).isEmpty();
+        assertThat(memberJpaRepository.search(condition)).isEmpty();
+        assertThat(memberRepository.search(condition)).isEmpty();
+
+        assertThat(StatementCounter.current() - before).isZero();
+        assertThat(counted("skipped")).isEqualTo(skipped + 4);
+    }
+
+    @Test
+    public void existingUsernameIsQueried() {
+        double found = counted("found");
+
+        assertThat(memberJpaRepository.findByUsername("filterMember1")).extracting("age").containsExactly(10);
+        assertThat(memberRepository.findByUsername("filterMember2")).extracting("age").containsExactly(20);
+
+        assertThat(counted("found")).isEqualTo(found + 2);
+    }
+
+    @Test
+    public void ownChangesAreFoundBeforeCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("FilterTeam");
+            em.persist(team);
+            em.persist(new Member("filterMember3", 30, team));
+            // flush 되지 않은 이름 변경도 같은 트랜잭션 안에서는 찾을 수 있어야 한다
+            Member renamed = em.createQuery("select m from Member m where m.username = 'filterMember2'", Member.class)
+                .getSingleResult();
+            renamed.changeUsername("filterRenamed");
+
+            assertThat(memberJpaRepository.findByUsername("filterMember3")).hasSize(1);
+            assertThat(memberRepository.findByUsername("filterRenamed")).hasSize(1);
+        });
+
+        assertThat(memberRepository.findByUsername("filterRenamed")).extracting("age").containsExactly(20);
+    }
+
+    @Test
+    public void bulkRenameIsFoundBeforeAndAfterCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // 벌크 수정은 영속성 컨텍스트를 거치지 않으므로 Recorder 가 이름을 추가하지 못한다
+            new JPAQueryFactory(em)
+                .update(member)
+                .set(member.username, "filterBulkRenamed")
+                .where(member.username.eq("filterMember1"))
+                .execute();
+            em.clear();
+
+            assertThat(memberRepository.findByUsername("filterBulkRenamed")).hasSize(1);
+        });
+
+        // 커밋 후 재빌드가 끝나기 전에도 없는 회원이라고 답하면 안 된다
+        assertThat(memberRepository.findByUsername("filterBulkRenamed")).extracting("age").containsExactly(10);
+        assertThat(memberJpaRepository.findByUsername("filterBulkRenamed")).extracting("age").containsExactly(10);
+    }
+
+    @Test
+    public void peerInsertIsAddedOnceItsCommitArrives() throws InterruptedException {
+        LoopbackInvalidationBus peer = ((LoopbackInvalidationBus) invalidationBus).join();
+        try {
+            // 다른 인스턴스가 커밋한 것처럼 이 인스턴스의 리스너를 거치지 않고 넣는다
+            jdbcTemplate.update("insert into member (member_id, username, age) values (?, ?, ?)", MEMBER_ID, "peerMember", 40);
+            assertThat(memberRepository.findByUsername("peerMember")).isEmpty();
+
+            peer.publish(InvalidationBatch.builder("peer", 1000).changed("Member", MEMBER_ID).build());
+
+            // 이름은 별도 스레드에서 id 로 조회해 추가된다
+            List<Member> found = memberRepository.findByUsername("peerMember");
+            for (int i = 0; i < 50 && found.isEmpty(); i++) {
+                Thread.sleep(100);
+                found = memberRepository.findByUsername("peerMember");
+            }
+            assertThat(found).extracting("age").containsExactly(40);
+        } finally {
+            peer.destroy();
+        }
+    }
+
+    @Test
+    public void bloomFilterStaysNearItsFalsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("member" + i));
+
+        assertThat(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("member" + i))).isTrue();
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("absent" + i)).count();
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.02);
+    }
+
+    private double counted(String result) {
+        return meterRegistry.counter(UsernameFilter.METRIC, "result", result).count();
+    }
+
+}
@@ -0,0 +1,102 @@
+package study.querydsl.repository.adaptive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CapturingStatementInspector;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Transactional
+class AdaptiveMemberSearchTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    AdaptiveMemberSearch adaptiveMemberSearch;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void strategiesReturnSameRows() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        List<List<MemberTeamDto>> results = new ArrayList<>();
+        for (FetchStrategy strategy : FetchStrategy.values()) {
+            results.add(adaptiveMemberSearch.execute(strategy, condition, null, new int[1]));
+            em.clear();
+        }
+
+        assertThat(results.get(0)).extracting("username", "teamName")
+            .containsExactly(
+                tuple("member2", "teamA"),
+                tuple("member3", "teamB"),
+                tuple("member4", "teamB"),
+                tuple("member5", null));
+        assertThat(results.get(1)).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(results.get(0));
+        assertThat(results.get(2)).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(results.get(0));
+    }
+
+    @Test
+    public void batchedLazyLoadsTeamsInOneQuery() {
+        CapturingStatementInspector.clear();
+        int[] lazyLoads = new int[1];
+
+        List<MemberTeamDto> result = adaptiveMemberSearch.execute(FetchStrategy.BATCHED_LAZY, new MemberSearchCondition(), null, lazyLoads);
+
+        assertThat(result).hasSize(5);
+        assertThat(lazyLoads[0]).isEqualTo(1);
+        // 회원 조회 1번 + 팀 IN 조회 1번
+        assertThat(CapturingStatementInspector.statements()).hasSize(2);
+        assertThat(CapturingStatementInspector.statements().get(0)).doesNotContain("join");
+    }
+
+    @Test
+    public void exploresEveryStrategyBeforeChoosing() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member3");
+
+        List<FetchStrategy> explored = new ArrayList<>();
+        for (int i = 0; i < FetchStrategy.values().length * 3; i++) {
+            FetchDecision decision = adaptiveMemberSearch.search(condition).getDecision();
+            assertThat(decision.getReason()).startsWith("exploring");
+            explored.add(decision.getStrategy());
+        }
+        assertThat(explored).containsOnly(FetchStrategy.values());
+
+        AdaptiveSearchResult result = adaptiveMemberSearch.search(condition);
+        assertThat(result.getContent()).extracting("username").containsExactly("member3");
+        assertThat(result.getDecision().getShape()).hasToString("username");
+        assertThat(result.getDecision().getReason()).startsWith("cheapest");
+    }
+
+}
@@ -0,0 +1,59 @@
+package study.querydsl.repository.adaptive;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.controller.dto.MemberSearchCondition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShapeStatisticsTest {
+
+    ShapeStatistics statistics = new ShapeStatistics(QueryShape.of(new MemberSearchCondition()), 2, 10);
+
+    @Test
+    public void choosesLowestAverageLatency() {
+        explore(5_000_000, 1_000_000, 3_000_000);
+
+        FetchDecision decision = statistics.decide();
+
+        assertThat(decision.getStrategy()).isEqualTo(FetchStrategy.BATCHED_LAZY);
+        assertThat(decision.getReason()).startsWith("cheapest at 1.00ms avg");
+    }
+
+    @Test
+    public void followsChangingLatency() {
+        explore(5_000_000, 1_000_000, 3_000_000);
+
+        // BATCHED_LAZY 가 느려지면 (팀이 많아져 IN 조회가 늘어나는 경우) 평균이 따라 올라간다
+        for (int i = 0; i < 5; i++) {
+            statistics.decide();
+            statistics.record(FetchStrategy.BATCHED_LAZY, 10_000_000, 100, 5);
+        }
+
+        assertThat(statistics.decide().getStrategy()).isEqualTo(FetchStrategy.DTO_PROJECTION);
+    }
+
+    @Test
+    public void rechecksStalestStrategyPeriodically() {
+        explore(5_000_000, 1_000_000, 3_000_000);
+
+        FetchDecision decision = null;
+        for (int i = 0; i < 4; i++) {
+            decision = statistics.decide();
+            statistics.record(decision.getStrategy(), 1_000_000, 10, 1);
+        }
+
+        // 10번째 실행은 가장 오래 측정되지 않은 FETCH_JOIN 을 다시 본다
+        assertThat(decision.getStrategy()).isEqualTo(FetchStrategy.FETCH_JOIN);
+        assertThat(decision.getReason()).startsWith("re-checking");
+    }
+
+    private void explore(long fetchJoin, long batchedLazy, long dtoProjection) {
+        long[] nanos = {fetchJoin, batchedLazy, dtoProjection};
+        for (int i = 0; i < FetchStrategy.values().length * 2; i++) {
+            FetchDecision decision = statistics.decide();
+            assertThat(decision.getReason()).startsWith("exploring");
+            statistics.record(decision.getStrategy(), nanos[decision.getStrategy().ordinal()], 10, 1);
+        }
+    }
+
+}
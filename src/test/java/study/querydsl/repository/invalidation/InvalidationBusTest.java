@@ -0,0 +1,227 @@
+package study.querydsl.repository.invalidation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberCountMaintainer;
+import study.querydsl.repository.TeamNameCache;
+
+import javax.persistence.EntityManager;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 커밋 이후에만 발행되는지 확인해야 하므로 @Transactional 없이 직접 커밋하고 지운다
+@SpringBootTest
+class InvalidationBusTest {
+
+    private static final long TEAM_ID = 10_000_000L;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    InvalidationBus invalidationBus;
+
+    @Autowired
+    InvalidationPublisher invalidationPublisher;
+
+    @Autowired
+    TeamNameCache teamNameCache;
+
+    TransactionTemplate transactionTemplate;
+
+    LoopbackInvalidationBus peer;
+
+    List<InvalidationBatch> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // 같은 네트워크의 다른 인스턴스 역할
+        peer = ((LoopbackInvalidationBus) invalidationBus).join();
+        peer.subscribe(received::add);
+    }
+
+    @AfterEach
+    public void after() {
+        peer.destroy();
+        jdbcTemplate.update("delete from member where team_id in (select team_id from team where name like 'Bus%')");
+        jdbcTemplate.update("delete from team where name like 'Bus%'");
+        teamNameCache.invalidate();
+    }
+
+    @Test
+    public void batchIsCompactOnTheWire() {
+        InvalidationBatch.Builder builder = InvalidationBatch.builder("node-a", 1000);
+        LongStream.rangeClosed(1, 100).forEach(id -> builder.changed("Member", 1_000_000 + id));
+        builder.changed("Team", -1).bump("Team.memberCount");
+        InvalidationBatch batch = builder.build();
+
+        byte[] bytes = batch.toBytes();
+
+        // 100 개의 인접한 id 가 id 당 약 1 바이트
+        assertThat(bytes.length).isLessThan(150);
+        InvalidationBatch decoded = InvalidationBatch.fromBytes(bytes);
+        assertThat(decoded).isEqualTo(batch);
+        assertThat(decoded.ids("Member")).hasSize(100).startsWith(1_000_001L);
+        assertThat(decoded.ids("Team")).containsExactly(-1L);
+        assertThat(decoded.isBumped("Team.memberCount")).isTrue();
+    }
+
+    @Test
+    public void tooManyIdsBecomeVersionBump() {
+        InvalidationBatch.Builder builder = InvalidationBatch.builder("node-a", 2);
+        LongStream.rangeClosed(1, 3).forEach(id -> builder.changed("Member", id));
+
+        InvalidationBatch batch = builder.build();
+
+        assertThat(batch.ids("Member")).isEmpty();
+        assertThat(batch.touches(Member.class)).isTrue();
+    }
+
+    @Test
+    public void committedChangesArePublishedOnceAfterCommit() {
+        Long[] ids = transactionTemplate.execute(status -> {
+            Team team = new Team("BusTeam");
+            em.persist(team);
+            Member member1 = new Member("member1", 10, team);
+            Member member2 = new Member("member2", 20, team);
+            em.persist(member1);
+            em.persist(member2);
+            em.flush();
+
+            assertThat(received).isEmpty();
+            return new Long[]{team.getId(), member1.getId(), member2.getId()};
+        });
+
+        assertThat(received).hasSize(1);
+        InvalidationBatch batch = received.get(0);
+        assertThat(batch.getOrigin()).isEqualTo(invalidationPublisher.getNodeId());
+        assertThat(batch.ids("Team")).containsExactly(ids[0]);
+        assertThat(batch.ids("Member")).containsExactly(ids[1], ids[2]);
+        assertThat(batch.ids(MemberCountMaintainer.MEMBER_COUNT)).containsExactly(ids[0]);
+    }
+
+    @Test
+    public void rolledBackChangesAreNotPublished() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Team("BusTeam"));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    public void peerChangeInvalidatesTeamNameCache() {
+        assertThat(teamNameCache.idsOf("BusTeam")).isEmpty();
+        // 다른 인스턴스가 커밋한 것처럼 이 인스턴스의 리스너를 거치지 않고 넣는다
+        jdbcTemplate.update("insert into team (team_id, name) values (?, ?)", TEAM_ID, "BusTeam");
+        assertThat(teamNameCache.idsOf("BusTeam")).isEmpty();
+
+        peer.publish(InvalidationBatch.builder("peer", 1000).changed("Team", TEAM_ID).build());
+
+        assertThat(teamNameCache.idsOf("BusTeam")).containsExactly(TEAM_ID);
+    }
+
+    @Test
+    public void socketBusDeliversBetweenLocalInstances() throws Exception {
+        InetSocketAddress anyPort = new InetSocketAddress("127.0.0.1", 0);
+        SocketInvalidationBus receiver = new SocketInvalidationBus("node-b", anyPort, Collections.emptyList(), 16);
+        SocketInvalidationBus sender = new SocketInvalidationBus("node-a", anyPort,
+            Collections.singletonList(new InetSocketAddress("127.0.0.1", receiver.getLocalPort())), 16);
+        CountDownLatch delivered = new CountDownLatch(3);
+        List<InvalidationBatch> socketReceived = new CopyOnWriteArrayList<>();
+        receiver.subscribe(batch -> {
+            socketReceived.add(batch);
+            delivered.countDown();
+        });
+
+        try {
+            InvalidationBatch first = InvalidationBatch.builder("node-a", 1000).changed("Member", 1).changed("Member", 2).build();
+            InvalidationBatch second = InvalidationBatch.builder("node-a", 1000).bump("Team").build();
+            sender.publish(first);
+            sender.publish(second);
+
+            assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+            // 새 연결은 이전 연결에서 잃었을 수 있는 배치 대신 전체 무효화로 시작한다
+            assertThat(socketReceived).containsExactly(InvalidationBatch.all("node-a"), first, second);
+        } finally {
+            sender.destroy();
+            receiver.destroy();
+        }
+    }
+
+    @Test
+    public void restartedPeerIsResyncedOnReconnect() throws Exception {
+        InetSocketAddress anyPort = new InetSocketAddress("127.0.0.1", 0);
+        SocketInvalidationBus receiver = new SocketInvalidationBus("node-b", anyPort, Collections.emptyList(), 16);
+        int port = receiver.getLocalPort();
+        SocketInvalidationBus sender = new SocketInvalidationBus("node-a", anyPort,
+            Collections.singletonList(new InetSocketAddress("127.0.0.1", port)), 16);
+        SocketInvalidationBus restarted = null;
+        try {
+            CountDownLatch connected = new CountDownLatch(1);
+            receiver.subscribe(batch -> connected.countDown());
+            sender.publish(InvalidationBatch.builder("node-a", 1000).changed("Member", 1).build());
+            assertThat(connected.await(5, TimeUnit.SECONDS)).isTrue();
+            receiver.destroy();
+
+            restarted = rebind(port);
+            List<InvalidationBatch> socketReceived = new CopyOnWriteArrayList<>();
+            restarted.subscribe(socketReceived::add);
+            // 죽은 연결로의 첫 쓰기는 커널 버퍼까지만 가고 성공할 수 있다
+            for (int i = 0; i < 50 && socketReceived.isEmpty(); i++) {
+                sender.publish(InvalidationBatch.builder("node-a", 1000).changed("Member", 2 + i).build());
+                Thread.sleep(100);
+            }
+
+            assertThat(socketReceived).isNotEmpty();
+            assertThat(socketReceived.get(0).isBumped(InvalidationBatch.ALL)).isTrue();
+        } finally {
+            sender.destroy();
+            receiver.destroy();
+            if (restarted != null) {
+                restarted.destroy();
+            }
+        }
+    }
+
+    private static SocketInvalidationBus rebind(int port) throws Exception {
+        // 닫힌 포트가 풀리기까지 잠깐 걸릴 수 있다
+        for (int i = 0; ; i++) {
+            try {
+                return new SocketInvalidationBus("node-b", new InetSocketAddress("127.0.0.1", port),
+                    Collections.emptyList(), 16);
+            } catch (BindException e) {
+                if (i == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+}
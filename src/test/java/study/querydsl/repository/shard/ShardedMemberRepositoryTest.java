@@ -0,0 +1,156 @@
+package study.querydsl.repository.shard;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedMemberRepositoryTest {
+
+    MemberShards shards;
+
+    ShardingProperties properties;
+
+    ShardedMemberRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new ShardingProperties();
+        String run = UUID.randomUUID().toString();
+        properties.setUrls(Arrays.asList(
+            "jdbc:h2:mem:shard0-" + run + ";DB_CLOSE_DELAY=-1",
+            "jdbc:h2:mem:shard1-" + run + ";DB_CLOSE_DELAY=-1",
+            "jdbc:h2:mem:shard2-" + run + ";DB_CLOSE_DELAY=-1"));
+        shards = new MemberShards(properties, UnaryOperator.identity());
+        properties.setFanOutThreads(3);
+        properties.setMaxResultWindow(100);
+        repository = new ShardedMemberRepository(shards, properties);
+
+        Long teamA = repository.saveTeam("TeamA");
+        Long teamB = repository.saveTeam("TeamB");
+        Long teamC = repository.saveTeam("TeamC");
+        repository.saveMember("Member1", 10, teamA);
+        repository.saveMember("Member2", 20, teamA);
+        repository.saveMember("Member3", 30, teamB);
+        repository.saveMember("Member4", 40, teamB);
+        repository.saveMember("Member5", 50, teamC);
+        repository.saveMember("Member6", 60, null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (int i = 0; i < shards.count(); i++) {
+            shards.shard(i).getJdbcTemplate().execute("drop all objects");
+        }
+        repository.destroy();
+        shards.destroy();
+    }
+
+    @Test
+    public void dataIsSpreadAcrossShards() {
+        long populated = IntStream.range(0, shards.count())
+            .filter(i -> shards.shard(i).getJdbcTemplate().queryForObject("select count(*) from member", Long.class) > 0)
+            .count();
+
+        assertThat(populated).isGreaterThan(1);
+    }
+
+    @Test
+    public void teamNameFilterIsRoutedToOneShard() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamB");
+
+        List<MemberTeamDto> result = repository.search(condition);
+
+        assertThat(result).extracting("username").containsExactly("Member3", "Member4");
+        Set<Integer> shardsHit = result.stream()
+            .map(dto -> shards.shardOfTeam(dto.getTeamId()))
+            .collect(Collectors.toSet());
+        assertThat(shardsHit).hasSize(1);
+    }
+
+    @Test
+    public void teamNameFilterFindsTeamsNotSavedByThisInstance() {
+        // 다른 인스턴스나 SQL로 직접 넣은 팀도 이름 해시로 같은 샤드를 찾는다
+        int shardIndex = shards.shardOfTeamName("TeamD");
+        long teamId = shards.nextId(shardIndex);
+        shards.shard(shardIndex).getJdbcTemplate().update("insert into team (team_id, name) values (?, 'TeamD')", teamId);
+        shards.shard(shardIndex).getJdbcTemplate().update(
+            "insert into member (member_id, username, age, team_id) values (?, 'Member7', 70, ?)", shards.nextId(shardIndex), teamId);
+
+        ShardedMemberRepository restarted = new ShardedMemberRepository(shards, properties);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamD");
+        try {
+            assertThat(restarted.search(condition)).extracting("username").containsExactly("Member7");
+            assertThat(repository.search(condition)).extracting("username").containsExactly("Member7");
+        } finally {
+            restarted.destroy();
+        }
+    }
+
+    @Test
+    public void pagesBeyondResultWindowAreRefused() {
+        assertThatThrownBy(() -> repository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(10, 10)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void unknownTeamNameReturnsNothing() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamZ");
+
+        Page<MemberTeamDto> result = repository.searchPageComplex(condition, PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.getTotalElements()).isZero();
+    }
+
+    @Test
+    public void unfilteredPagesAreMergedAcrossShards() {
+        Page<MemberTeamDto> first = repository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 4, Sort.by("age")));
+        Page<MemberTeamDto> second = repository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(1, 4, Sort.by("age")));
+
+        assertThat(first.getContent()).extracting("age").containsExactly(10, 20, 30, 40);
+        assertThat(second.getContent()).extracting("age").containsExactly(50, 60);
+        assertThat(first.getTotalElements()).isEqualTo(6);
+        assertThat(first.getTotalPages()).isEqualTo(2);
+    }
+
+    @Test
+    public void descendingSortAndFilterAreAppliedOnEveryShard() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(50);
+
+        Page<MemberTeamDto> result = repository.searchPageComplex(condition, PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age")));
+
+        assertThat(result.getContent()).extracting("username").containsExactly("Member5", "Member4", "Member3");
+        assertThat(result.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    public void unpagedSearchReturnsEveryShardInIdOrder() {
+        List<MemberTeamDto> result = repository.search(new MemberSearchCondition());
+
+        List<Long> ids = result.stream().map(MemberTeamDto::getMemberId).collect(Collectors.toList());
+        assertThat(result).hasSize(6);
+        assertThat(ids).isSorted();
+    }
+
+}
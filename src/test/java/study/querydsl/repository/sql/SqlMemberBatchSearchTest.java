@@ -0,0 +1,106 @@
+package study.querydsl.repository.sql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.repository.TeamNameCache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 두 번째 문장부터는 풀 스레드의 별도 트랜잭션에서 실행되므로 @Transactional 없이 커밋된 데이터로 검증한다
+@SpringBootTest(properties = {"querydsl.batch-search.max-union=2", "querydsl.batch-search.max-conditions=6"})
+class SqlMemberBatchSearchTest {
+
+    private static final long FIRST_ID = 10_000_000L;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TeamNameCache teamNameCache;
+
+    @Autowired
+    SqlMemberBatchSearch batchSearch;
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into team (team_id, name) values (?, ?)", FIRST_ID, "BatchTeamA");
+        jdbcTemplate.update("insert into team (team_id, name) values (?, ?)", FIRST_ID + 1, "BatchTeamB");
+        insertMember(1, "Member1", 10, FIRST_ID);
+        insertMember(2, "Member2", 20, FIRST_ID);
+        insertMember(3, "Member3", 30, FIRST_ID + 1);
+        insertMember(4, "Member4", 40, FIRST_ID + 1);
+        insertMember(5, "Member5", 50, null);
+        teamNameCache.invalidate();
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from team where team_id >= ?", FIRST_ID);
+        teamNameCache.invalidate();
+    }
+
+    @Test
+    public void resultsAreSplitPerCondition() {
+        MemberSearchCondition teamA = condition("BatchTeamA", null);
+        MemberSearchCondition older = condition(null, 30);
+        MemberSearchCondition teamB = condition("BatchTeamB", null);
+        MemberSearchCondition oldest = condition(null, 50);
+        MemberSearchCondition member3 = new MemberSearchCondition();
+        member3.setUsername("Member3");
+
+        // max-union=2 이므로 세 문장으로 나뉘고 두 문장은 병렬로 실행된다
+        List<List<MemberTeamDto>> results = batchSearch.search(Arrays.asList(teamA, older, teamB, oldest, member3));
+
+        assertThat(results).hasSize(5);
+        assertThat(results.get(0)).extracting("username").containsExactly("Member1", "Member2");
+        assertThat(results.get(1)).extracting("username").containsExactly("Member3", "Member4", "Member5");
+        assertThat(results.get(2)).extracting("username").containsExactly("Member3", "Member4");
+        assertThat(results.get(3)).extracting("username").containsExactly("Member5");
+        assertThat(results.get(4)).extracting("teamName").containsExactly("BatchTeamB");
+    }
+
+    @Test
+    public void unknownTeamIsAnsweredWithoutQuery() {
+        MemberSearchCondition unknown = condition("NoSuchTeam", null);
+
+        List<List<MemberTeamDto>> results = batchSearch.search(Arrays.asList(unknown, condition("BatchTeamA", null)));
+
+        assertThat(results.get(0)).isEmpty();
+        assertThat(results.get(1)).hasSize(2);
+        assertThat(batchSearch.search(Collections.emptyList())).isEmpty();
+    }
+
+    @Test
+    public void tooManyConditionsAreRefused() {
+        List<MemberSearchCondition> conditions = Collections.nCopies(7, new MemberSearchCondition());
+
+        // 조건마다 전체 테이블을 읽을 수 있으므로 개수를 제한한다
+        assertThatThrownBy(() -> batchSearch.search(conditions)).isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+
+    private void insertMember(long offset, String username, int age, Long teamId) {
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)",
+            FIRST_ID + offset, username, age, teamId);
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+
+}
@@ -0,0 +1,125 @@
+package study.querydsl.repository.sql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 페이징 조회를 count 쿼리를 따로 날리는 방식과 {@code count(*) over()} 한 번으로 끝내는 방식으로 비교한다.
+ * <p>
+ * H2 는 임베디드라 쿼리가 호출 스레드에서 실행되므로, 스레드 CPU 시간을 DB CPU 사용량의 근사치로 쓴다.
+ * {@code ./gradlew benchmark} 로만 실행된다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "logging.level.org.hibernate.SQL=info",
+    "logging.level.org.hibernate.type=info"
+})
+class SqlMemberPagingBenchmarkTest {
+
+    static final int TEAMS = 100;
+    static final int MEMBERS_PER_TEAM = 1_000;
+    static final long FIRST_ID = 10_000_000L;
+    static final int WARMUP = 50;
+    static final int ROUNDS = 200;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    SqlMemberRepository sqlMemberRepository;
+
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        List<Object[]> teams = new ArrayList<>();
+        List<Object[]> members = new ArrayList<>();
+        long memberId = FIRST_ID;
+        for (int t = 0; t < TEAMS; t++) {
+            long teamId = FIRST_ID + t;
+            teams.add(new Object[]{teamId, "team" + t});
+            for (int m = 0; m < MEMBERS_PER_TEAM; m++) {
+                members.add(new Object[]{memberId, "member" + memberId, (int) ((memberId * 31) % 80), teamId});
+                memberId++;
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into team (team_id, name) values (?, ?)", teams);
+        jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", members);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from team where team_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void windowedVersusSeparateCount() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(60);
+        PageRequest pageRequest = PageRequest.of(10, 20);
+
+        Page<MemberTeamDto> expected = transactionTemplate.execute(
+            status -> sqlMemberRepository.searchPageComplex(condition, pageRequest));
+        Page<MemberTeamDto> windowed = transactionTemplate.execute(
+            status -> sqlMemberRepository.searchPageWindowed(condition, pageRequest));
+        assertThat(windowed.getTotalElements()).isEqualTo(expected.getTotalElements());
+        assertThat(windowed.getContent()).usingRecursiveFieldByFieldElementComparator()
+            .containsExactlyElementsOf(expected.getContent());
+
+        System.out.printf("%-16s %10s %14s %12s%n", "method", "statements", "median(us)", "cpu(us)");
+        run("jpa simple", 2, () -> memberRepository.searchPageSimple(condition, pageRequest));
+        run("jpa complex", 2, () -> memberRepository.searchPageComplex(condition, pageRequest));
+        run("sql complex", 2, () -> sqlMemberRepository.searchPageComplex(condition, pageRequest));
+        run("sql windowed", 1, () -> sqlMemberRepository.searchPageWindowed(condition, pageRequest));
+    }
+
+    private void run(String name, int statements, Supplier<Page<MemberTeamDto>> query) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long[] micros = new long[ROUNDS];
+        long cpuNanos = 0;
+        for (int round = -WARMUP; round < ROUNDS; round++) {
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> query.get());
+            if (round >= 0) {
+                micros[round] = (System.nanoTime() - start) / 1_000;
+                cpuNanos += threads.getCurrentThreadCpuTime() - cpuStart;
+            }
+        }
+        Arrays.sort(micros);
+        System.out.printf("%-16s %10d %14d %12d%n", name, statements, micros[ROUNDS / 2], cpuNanos / ROUNDS / 1_000);
+    }
+
+}
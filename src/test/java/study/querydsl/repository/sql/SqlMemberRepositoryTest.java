@@ -0,0 +1,127 @@
+package study.querydsl.repository.sql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class SqlMemberRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    SqlMemberRepository sqlMemberRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("Member1", 10, teamA));
+        em.persist(new Member("Member2", 20, teamA));
+        em.persist(new Member("Member3", 30, teamB));
+        em.persist(new Member("Member4", 40, teamB));
+        em.persist(new Member("Member5", 50));
+
+        // JPA 를 거치지 않으니 flush 된 상태만 보인다
+        em.flush();
+    }
+
+    @Test
+    public void searchTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(40);
+        condition.setTeamName("TeamB");
+
+        List<MemberTeamDto> result = sqlMemberRepository.search(condition);
+
+        assertThat(result).extracting("username").containsExactly("Member4");
+        assertThat(result).usingRecursiveFieldByFieldElementComparator()
+            .containsExactlyElementsOf(memberRepository.search(condition));
+    }
+
+    @Test
+    public void searchWithoutTeamTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        List<MemberTeamDto> result = sqlMemberRepository.search(condition);
+
+        assertThat(result).hasSize(5);
+        assertThat(result).usingRecursiveFieldByFieldElementComparator()
+            .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+    }
+
+    @Test
+    public void searchPageSimpleTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 3);
+
+        Page<MemberTeamDto> result = sqlMemberRepository.searchPageSimple(condition, pageRequest);
+
+        assertThat(result.getSize()).isEqualTo(3);
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.getContent()).extracting("username").containsExactly("Member1", "Member2", "Member3");
+    }
+
+    @Test
+    public void searchPageComplexTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamA");
+        PageRequest pageRequest = PageRequest.of(1, 1);
+
+        Page<MemberTeamDto> result = sqlMemberRepository.searchPageComplex(condition, pageRequest);
+
+        assertThat(result.getContent()).extracting("username").containsExactly("Member2");
+        assertThat(result.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void searchPageWindowedTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamA");
+        PageRequest pageRequest = PageRequest.of(1, 1);
+
+        Page<MemberTeamDto> result = sqlMemberRepository.searchPageWindowed(condition, pageRequest);
+
+        assertThat(result.getContent()).extracting("username").containsExactly("Member2");
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        // 내용과 전체 건수를 쿼리 한 번으로 가져온다
+        assertThat(result).usingRecursiveComparison()
+            .isEqualTo(sqlMemberRepository.searchPageComplex(condition, pageRequest));
+    }
+
+    @Test
+    public void searchPageWindowedPastLastPageTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(2, 3);
+
+        Page<MemberTeamDto> result = sqlMemberRepository.searchPageWindowed(condition, pageRequest);
+
+        // 넘겨받을 행이 없으면 count 쿼리로 전체 건수를 구한다
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.getTotalElements()).isEqualTo(5);
+    }
+
+}
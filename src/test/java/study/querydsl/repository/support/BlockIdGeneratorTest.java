@@ -0,0 +1,124 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 여러 스레드가 각자 트랜잭션을 커밋하므로 @Transactional 없이 직접 지운다.
+// 다른 컨텍스트가 같은 인메모리 DB 를 다시 만들면 시퀀스가 처음부터 시작해 메모리에 남은 블록과 겹치므로 별도 DB 를 쓴다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:block-id")
+class BlockIdGeneratorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        CapturingStatementInspector.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member where username like 'block%'");
+        jdbcTemplate.update("delete from team where name like 'block%'");
+    }
+
+    @Test
+    public void sequenceIsReadOncePerBlock() {
+        List<Long> ids = persistMembers(120);
+
+        long sequenceCalls = CapturingStatementInspector.statements().stream()
+            .filter(sql -> sql.contains("member_seq"))
+            .count();
+        // 기본 블록 크기 50, 남아 있던 블록에서 시작할 수 있으므로 120 개에 블록은 최대 3 개
+        assertThat(sequenceCalls).isBetween(2L, 3L);
+        assertThat(ids).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    public void blockReservedByAnotherInstanceIsSkipped() {
+        persistMembers(1);
+        // 같은 시퀀스를 쓰는 다른 인스턴스가 블록 하나를 예약한다
+        long reserved = jdbcTemplate.queryForObject("select next value for member_seq", Long.class);
+
+        List<Long> ids = persistMembers(120);
+
+        assertThat(ids).noneMatch(id -> id >= reserved && id < reserved + 50);
+    }
+
+    @Test
+    public void concurrentInsertsGetDistinctIds() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        ids.addAll(transactionTemplate.execute(status -> {
+                            Team team = new Team("blockTeam");
+                            em.persist(team);
+                            List<Long> created = new ArrayList<>();
+                            for (int j = 0; j < 4; j++) {
+                                Member member = new Member("block", j, team);
+                                em.persist(member);
+                                created.add(member.getId());
+                            }
+                            return created;
+                        }));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(8 * 25 * 4);
+        assertThat(jdbcTemplate.queryForObject("select count(distinct member_id) from member where username = 'block'", Long.class))
+            .isEqualTo(8 * 25 * 4);
+    }
+
+    private List<Long> persistMembers(int count) {
+        return transactionTemplate.execute(status -> {
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Member member = new Member("block" + i, i);
+                em.persist(member);
+                members.add(member);
+            }
+            return members.stream().map(Member::getId).collect(Collectors.toList());
+        });
+    }
+
+}
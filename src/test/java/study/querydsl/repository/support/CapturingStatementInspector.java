@@ -0,0 +1,26 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CapturingStatementInspector implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> statements = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        statements.get().add(sql.replaceAll("(?s)/\\*.*?\\*/", "").trim());
+        return sql;
+    }
+
+    public static List<String> statements() {
+        return statements.get();
+    }
+
+    public static void clear() {
+        statements.get().clear();
+    }
+
+}
@@ -0,0 +1,159 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.NestedTestConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.springframework.test.context.NestedTestConfiguration.EnclosingConfiguration.OVERRIDE;
+
+/**
+ * 팀 200 개와 팀마다 회원 10 명을 한 트랜잭션에서 persist 하는 작업을 세 설정으로 반복하고 초당 insert 수와
+ * 준비된 JDBC 문장 수를 비교한다.
+ * <ul>
+ *     <li>sequence per insert: 블록 크기 1, 배치 없음 (이전의 {@code @GeneratedValue} 와 같은 왕복)</li>
+ *     <li>blocks: {@link BlockIdGenerator} 블록 50, 배치 없음</li>
+ *     <li>blocks + batching: 블록 50, {@code hibernate.jdbc.batch_size=50}</li>
+ * </ul>
+ * 시퀀스 증가값이 설정마다 다르므로 설정마다 별도의 인메모리 DB 를 쓴다.
+ * <p>
+ * {@code ./gradlew benchmark} 로만 실행된다.
+ */
+@Tag("benchmark")
+class IdAllocationBenchmarkTest {
+
+    static final int TEAMS = 200;
+    static final int MEMBERS_PER_TEAM = 10;
+    static final int WARM_UP = 10;
+    static final int ROUNDS = 20;
+
+    @Nested
+    @NestedTestConfiguration(OVERRIDE)
+    @SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn",
+        "spring.datasource.url=jdbc:h2:mem:id-bench-sequence",
+        "querydsl.id-block.size=1",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=1"
+    })
+    class SequencePerInsert extends Scenario {
+
+        @Test
+        public void insert() {
+            run("sequence per insert");
+        }
+    }
+
+    @Nested
+    @NestedTestConfiguration(OVERRIDE)
+    @SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn",
+        "spring.datasource.url=jdbc:h2:mem:id-bench-blocks",
+        "querydsl.id-block.size=50",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=1"
+    })
+    class Blocks extends Scenario {
+
+        @Test
+        public void insert() {
+            run("blocks");
+        }
+    }
+
+    @Nested
+    @NestedTestConfiguration(OVERRIDE)
+    @SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn",
+        "spring.datasource.url=jdbc:h2:mem:id-bench-batching",
+        "querydsl.id-block.size=50",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50"
+    })
+    class BlocksWithBatching extends Scenario {
+
+        @Test
+        public void insert() {
+            run("blocks + batching");
+        }
+    }
+
+    abstract static class Scenario {
+
+        @Autowired
+        EntityManager em;
+
+        @Autowired
+        EntityManagerFactory emf;
+
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        PlatformTransactionManager transactionManager;
+
+        @AfterEach
+        public void tearDown() {
+            deleteInserted();
+        }
+
+        void run(String mode) {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+            for (int i = 0; i < WARM_UP; i++) {
+                transactionTemplate.executeWithoutResult(status -> insertAll());
+                deleteInserted();
+            }
+
+            statistics.clear();
+            long nanos = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                long start = System.nanoTime();
+                transactionTemplate.executeWithoutResult(status -> insertAll());
+                nanos += System.nanoTime() - start;
+                deleteInserted();
+            }
+
+            long inserts = (long) ROUNDS * TEAMS * (MEMBERS_PER_TEAM + 1);
+            System.out.printf("%-20s %12s %16s%n", "mode", "inserts/s", "statements/round");
+            System.out.printf("%-20s %12.0f %16d%n", mode, inserts / (nanos / 1e9),
+                statistics.getPrepareStatementCount() / ROUNDS);
+        }
+
+        private void insertAll() {
+            for (int t = 0; t < TEAMS; t++) {
+                Team team = new Team("benchTeam");
+                em.persist(team);
+                for (int m = 0; m < MEMBERS_PER_TEAM; m++) {
+                    em.persist(new Member("bench", m, team));
+                }
+            }
+        }
+
+        private void deleteInserted() {
+            jdbcTemplate.update("delete from member where username = 'bench'");
+            jdbcTemplate.update("delete from team where name = 'benchTeam'");
+        }
+    }
+
+}
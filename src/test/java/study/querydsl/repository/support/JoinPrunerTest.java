@@ -0,0 +1,133 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.controller.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class JoinPrunerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    public void setUp() {
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("Member1", 10, teamA));
+        em.persist(new Member("Member2", 20, teamA));
+        em.persist(new Member("Member3", 30, teamB));
+        em.persist(new Member("Member4", 40, teamB));
+
+        em.flush();
+        em.clear();
+        CapturingStatementInspector.clear();
+    }
+
+    @Test
+    public void countQueryWithoutTeamFilterHasNoJoin() {
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 3));
+
+        assertThat(result.getTotalElements()).isEqualTo(4);
+        assertThat(selects("count(")).hasSize(1).allMatch(sql -> !sql.contains("join"));
+        assertThat(selects("member_id")).anyMatch(sql -> sql.contains("left outer join"));
+    }
+
+    @Test
+    public void countQueryWithTeamFilterUsesForeignKey() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamB");
+
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+
+        // 팀 이름은 TeamNameCache 가 id 로 바꿔 주므로 count 쿼리에 조인이 남지 않는다
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(selects("count(")).hasSize(1).allMatch(sql -> !sql.contains("join") && sql.contains("team_id"));
+    }
+
+    @Test
+    public void teamJoinInsideWhereIsKept() {
+        Long count = queryFactory
+            .select(member.count())
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(team.name.eq("TeamB"))
+            .fetchOne();
+
+        assertThat(count).isEqualTo(2);
+        assertThat(CapturingStatementInspector.statements()).allMatch(sql -> sql.contains("left outer join"));
+    }
+
+    @Test
+    public void entitySearchWithoutTeamFilterHasNoJoin() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        List<Member> result = memberJpaRepository.searchMember(condition);
+
+        assertThat(result).extracting("username").containsExactly("Member2", "Member3", "Member4");
+        assertThat(CapturingStatementInspector.statements()).allMatch(sql -> !sql.contains("join"));
+    }
+
+    @Test
+    public void fetchJoinIsKept() {
+        List<Member> result = queryFactory
+            .selectFrom(member)
+            .leftJoin(member.team, team).fetchJoin()
+            .fetch();
+
+        assertThat(result).hasSize(4);
+        assertThat(CapturingStatementInspector.statements()).allMatch(sql -> sql.contains("left outer join"));
+    }
+
+    @Test
+    public void collectionJoinIsKept() {
+        Long count = queryFactory
+            .select(team.count())
+            .from(team)
+            .leftJoin(team.members, member)
+            .fetchOne();
+
+        assertThat(count).isEqualTo(4);
+        assertThat(CapturingStatementInspector.statements()).allMatch(sql -> sql.contains("left outer join"));
+    }
+
+    private List<String> selects(String marker) {
+        return CapturingStatementInspector.statements().stream()
+            .filter(sql -> sql.contains(marker))
+            .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,92 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLTimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class QueryDeadlineTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @AfterEach
+    public void tearDown() {
+        QueryDeadline.clear();
+    }
+
+    @Test
+    public void remainingBudgetBecomesStatementTimeout() throws Exception {
+        QueryDeadline.start(1500);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select 1")) {
+            assertThat(statement.getQueryTimeout()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void noDeadlineLeavesStatementUnbounded() throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select 1")) {
+            assertThat(statement.getQueryTimeout()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void expiredDeadlineRefusesRepositoryQueries() {
+        double before = timeouts("deadline");
+        QueryDeadline.start(-1);
+
+        assertThatThrownBy(() -> memberJpaRepository.search(new MemberSearchCondition()))
+            .isInstanceOf(QueryTimeoutException.class);
+        assertThatThrownBy(() -> memberRepository.findByUsername("member1"))
+            .isInstanceOf(QueryTimeoutException.class);
+
+        assertThat(timeouts("deadline")).isEqualTo(before + 2);
+    }
+
+    @Test
+    public void driverTimeoutIsCountedSeparately() throws Exception {
+        double before = timeouts("statement");
+        QueryDeadline.start(1000);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                 "select count(*) from system_range(1, 1000000) a, system_range(1, 1000000) b")) {
+            assertThatThrownBy(statement::executeQuery).isInstanceOf(SQLTimeoutException.class);
+        }
+
+        assertThat(timeouts("statement")).isEqualTo(before + 1);
+    }
+
+    private double timeouts(String cause) {
+        return meterRegistry.counter(QueryDeadlineDataSource.TIMEOUT_METRIC, "cause", cause).count();
+    }
+
+}
@@ -0,0 +1,119 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class SqlRecorderTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    SqlSampleBuffer sqlSampleBuffer;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @AfterEach
+    public void tearDown() {
+        SqlSampling.clear();
+    }
+
+    @Test
+    public void sampledRequestRecordsSqlAndBinds() {
+        memberJpaRepository.save(new Member("member1", 10));
+        em.flush();
+        long before = sqlSampleBuffer.recorded();
+
+        // 샘플링되지 않은 빠른 쿼리는 남기지 않는다
+        memberJpaRepository.findByUsername("member1");
+        assertThat(sqlSampleBuffer.recorded()).isEqualTo(before);
+
+        SqlSampling.start();
+        memberJpaRepository.findByUsername("member1");
+
+        List<SqlSample> samples = newSamples(before);
+        assertThat(samples).hasSize(1);
+        assertThat(samples.get(0).getSql()).contains("where").contains("username=?");
+        assertThat(samples.get(0).getBinds()).containsExactly("member1");
+        assertThat(samples.get(0).getReason()).isEqualTo("sampled");
+    }
+
+    @Test
+    public void slowStatementIsAlwaysRecorded() throws Exception {
+        SqlSampleBuffer buffer = new SqlSampleBuffer(16);
+        DataSource recording = new SqlRecordingDataSource(dataSource, buffer, 0);
+
+        try (Connection connection = recording.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select count(*) from member where age > ?")) {
+            statement.setInt(1, 20);
+            statement.executeQuery().close();
+        }
+
+        assertThat(buffer.snapshot()).singleElement().satisfies(sample -> {
+            assertThat(sample.getReason()).isEqualTo("slow");
+            assertThat(sample.getBinds()).containsExactly("20");
+            assertThat(sample.isFailed()).isFalse();
+        });
+    }
+
+    @Test
+    public void batchRecordsEveryRowsBinds() throws Exception {
+        SqlSampleBuffer buffer = new SqlSampleBuffer(16);
+        DataSource recording = new SqlRecordingDataSource(dataSource, buffer, 0);
+
+        try (Connection connection = recording.getConnection();
+             PreparedStatement statement = connection.prepareStatement("update member set age = age where age > ?")) {
+            statement.setInt(1, 20);
+            statement.addBatch();
+            statement.setInt(1, 30);
+            statement.addBatch();
+            statement.executeBatch();
+        }
+
+        // 마지막 행이 아니라 배치에 넣은 행마다 바인드 값이 남는다
+        assertThat(buffer.snapshot()).singleElement().satisfies(sample ->
+            assertThat(sample.getBinds()).containsExactly("[20]", "[30]"));
+    }
+
+    @Test
+    public void bufferKeepsMostRecentSamples() {
+        SqlSampleBuffer buffer = new SqlSampleBuffer(3);
+
+        for (int i = 0; i < 6; i++) {
+            buffer.add(i, "main", "select " + i, Collections.emptyList(), 0, "sampled", false);
+        }
+
+        // 용량은 2의 거듭제곱(4)으로 올리고, 가장 오래된 것부터 덮어쓴다
+        assertThat(buffer.capacity()).isEqualTo(4);
+        assertThat(buffer.recorded()).isEqualTo(6);
+        assertThat(buffer.snapshot()).extracting("sql").containsExactly("select 2", "select 3", "select 4", "select 5");
+    }
+
+    private List<SqlSample> newSamples(long after) {
+        return sqlSampleBuffer.snapshot().stream()
+            .filter(sample -> sample.getSequence() >= after)
+            .collect(Collectors.toList());
+    }
+
+}
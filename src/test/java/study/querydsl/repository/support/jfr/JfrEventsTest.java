@@ -0,0 +1,81 @@
+package study.querydsl.repository.support.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.controller.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class JfrEventsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Test
+    public void repositoryCallsAndFlushesAreRecorded() throws Exception {
+        memberJpaRepository.save(new Member("member1", 10));
+        memberJpaRepository.save(new Member("member2", 20));
+        em.flush();
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("study.querydsl.RepositoryCall");
+            recording.enable("study.querydsl.PersistenceFlush");
+            recording.start();
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername("member1");
+            condition.setAgeGoe(5);
+            memberRepository.search(condition);
+
+            memberJpaRepository.findById(memberJpaRepository.findByUsername("member2").get(0).getId())
+                .get().addAge(1);
+            em.flush();
+
+            recording.stop();
+            Path file = Files.createTempFile("repository-events", ".jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+            Files.delete(file);
+        }
+
+        List<RecordedEvent> calls = events.stream()
+            .filter(event -> event.getEventType().getName().equals("study.querydsl.RepositoryCall"))
+            .collect(Collectors.toList());
+        // 프록시가 겹쳐도 가장 바깥 호출 한 번만 남는다
+        assertThat(calls).extracting(event -> event.getString("method")).containsExactly("search", "findByUsername", "findById");
+        RecordedEvent search = calls.get(0);
+        assertThat(search.getInt("conditionShape")).isEqualTo(1 | 4);
+        assertThat(search.getInt("rows")).isEqualTo(1);
+        assertThat(search.getLong("sqlCount")).isEqualTo(1);
+
+        RecordedEvent flush = events.stream()
+            .filter(event -> event.getEventType().getName().equals("study.querydsl.PersistenceFlush"))
+            .reduce((first, second) -> second).get();
+        assertThat(flush.getInt("entitiesChecked")).isGreaterThanOrEqualTo(1);
+        assertThat(flush.getInt("entitiesDirty")).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,135 @@
+package study.querydsl.startup;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.repository.invalidation.InvalidationPublisher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 스냅샷 복원은 DB 전체를 지우고 다시 만들기 때문에 다른 테스트와 DB 를 공유하지 않는다
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:snapshot",
+    "querydsl.snapshot.enabled=true",
+    "querydsl.snapshot.path=build/snapshot-test/querydsl.zip"
+})
+class DatabaseSnapshotTest {
+
+    private static final long TEAM_ID = 10_000_000L;
+
+    private static final Path FILE = Paths.get("build/snapshot-test/querydsl.zip");
+
+    private static final Path METADATA = Paths.get("build/snapshot-test/querydsl.zip.properties");
+
+    @Autowired
+    DatabaseSnapshot snapshot;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    InvalidationPublisher invalidationPublisher;
+
+    @AfterEach
+    public void after() throws IOException {
+        jdbcTemplate.update("delete from member where team_id = ?", TEAM_ID);
+        jdbcTemplate.update("delete from team where team_id = ?", TEAM_ID);
+        Files.deleteIfExists(FILE);
+        Files.deleteIfExists(METADATA);
+    }
+
+    @Test
+    public void restoresSavedData() {
+        jdbcTemplate.update("insert into team (team_id, name, member_count) values (?, ?, ?)", TEAM_ID, "SnapshotTeam", 1);
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)",
+            TEAM_ID, "snapshotMember", 10, TEAM_ID);
+        jdbcTemplate.queryForObject("select next value for member_seq", Long.class);
+        long sequence = memberSequence();
+
+        snapshot.save();
+        jdbcTemplate.update("delete from member where team_id = ?", TEAM_ID);
+        jdbcTemplate.update("delete from team where team_id = ?", TEAM_ID);
+
+        assertThat(snapshot.restore()).isTrue();
+
+        assertThat(jdbcTemplate.queryForObject("select username from member where member_id = ?", String.class, TEAM_ID))
+            .isEqualTo("snapshotMember");
+        assertThat(jdbcTemplate.queryForObject("select member_count from team where team_id = ?", Integer.class, TEAM_ID))
+            .isEqualTo(1);
+        // 복원 후에도 이미 발급한 id 블록을 다시 발급하지 않는다
+        assertThat(memberSequence()).isEqualTo(sequence);
+    }
+
+    @Test
+    public void missingSnapshotIsNotRestored() {
+        assertThat(snapshot.staleReason()).isEqualTo("no snapshot");
+        assertThat(snapshot.restore()).isFalse();
+    }
+
+    @Test
+    public void corruptedSnapshotIsRejected() throws IOException {
+        snapshot.save();
+        Files.write(FILE, new byte[]{0}, StandardOpenOption.APPEND);
+
+        assertThat(snapshot.staleReason()).isEqualTo("checksum mismatch");
+        assertThat(snapshot.restore()).isFalse();
+    }
+
+    @Test
+    public void changedSchemaIsRejected() {
+        snapshot.save();
+        jdbcTemplate.execute("alter table member add column nickname varchar(255)");
+        try {
+            assertThat(snapshot.staleReason()).isEqualTo("schema changed");
+        } finally {
+            jdbcTemplate.execute("alter table member drop column nickname");
+        }
+        assertThat(snapshot.staleReason()).isNull();
+    }
+
+    @Test
+    public void changedIndexIsRejected() {
+        snapshot.save();
+        // 인덱스만 바뀐 매핑도 다른 스키마로 본다
+        jdbcTemplate.execute("drop index idx_team_member_count");
+        try {
+            assertThat(snapshot.staleReason()).isEqualTo("schema changed");
+        } finally {
+            jdbcTemplate.execute("create index idx_team_member_count on team (member_count)");
+        }
+        assertThat(snapshot.staleReason()).isNull();
+    }
+
+    @Test
+    public void notRestoredWhileServing() {
+        snapshot.save();
+        DatabaseSnapshot background = new DatabaseSnapshot(jdbcTemplate, invalidationPublisher, FILE.toString(), "1", true);
+
+        // 백그라운드 로딩은 요청을 받는 중에 실행되므로 DB 를 통째로 바꾸지 않는다
+        assertThat(background.staleReason()).isNull();
+        assertThat(background.restore()).isFalse();
+    }
+
+    @Test
+    public void otherDataVersionIsRejected() {
+        snapshot.save();
+        DatabaseSnapshot nextVersion = new DatabaseSnapshot(jdbcTemplate, invalidationPublisher, FILE.toString(), "2", false);
+
+        assertThat(nextVersion.staleReason()).isEqualTo("data version 1, expected 2");
+        assertThat(nextVersion.restore()).isFalse();
+    }
+
+    private long memberSequence() {
+        return jdbcTemplate.queryForObject(
+            "select current_value from information_schema.sequences where sequence_name = 'MEMBER_SEQ'", Long.class);
+    }
+
+}